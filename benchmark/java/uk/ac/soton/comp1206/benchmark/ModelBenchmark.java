@@ -0,0 +1,250 @@
+package uk.ac.soton.comp1206.benchmark;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.game.BagPieceSource;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.game.PieceSource;
+import uk.ac.soton.comp1206.game.RandomPieceSource;
+
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+/**
+ * Micro benchmarks for the hot paths of the game model: Grid.canPlayPiece, Grid.playPiece, GameEngine.afterPiece,
+ * GameEngine.score, GamePiece.rotate, GamePiece.createPiece and the piece sources.
+ *
+ * Each benchmark is run on boards from 5x5 up to 64x64 filled to several densities. It is warmed up first, then timed
+ * over several measurement rounds, and the bytes allocated by the benchmark thread are reported per operation. Inputs
+ * (pieces and positions) are generated up front from a fixed seed so every run does the same work.
+ *
+ * The benchmark lives in its own source root, outside the game module, and runs on the class path against the compiled
+ * game classes, so the game does not ship it or need jdk.management for the allocation counter.
+ *
+ * Run it with: ModelBenchmark [milliseconds per round]
+ */
+public class ModelBenchmark {
+
+    private static final Logger logger = LogManager.getLogger(ModelBenchmark.class);
+
+    /**
+     * The board sizes to benchmark
+     */
+    private static final int[] SIZES = {5, 8, 16, 32, 64};
+
+    /**
+     * The fraction of blocks filled before each benchmark
+     */
+    private static final double[] DENSITIES = {0.25, 0.5, 0.75};
+
+    /**
+     * Number of warm up and measurement rounds
+     */
+    private static final int WARMUP_ROUNDS = 3, MEASURE_ROUNDS = 5;
+
+    /**
+     * Number of pre-generated inputs, cycled through by the benchmarks
+     */
+    private static final int INPUTS = 4096;
+
+    /**
+     * A single benchmarked operation
+     */
+    private interface Operation {
+        /**
+         * Run the operation once
+         * @param i the number of the call, used to pick an input
+         * @return any value, consumed so the work cannot be optimised away
+         */
+        long run(int i);
+    }
+
+    /**
+     * Used to read how many bytes the benchmark thread has allocated
+     */
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Length of each round in nanoseconds
+     */
+    private final long roundTime;
+
+    /**
+     * Results of every operation are folded into this so they are never dead code
+     */
+    private long sink;
+
+    /**
+     * Create a new benchmark
+     * @param roundMillis length of each round in milliseconds
+     */
+    public ModelBenchmark(long roundMillis) {
+        this.roundTime = roundMillis * 1_000_000;
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    /**
+     * Run every benchmark
+     * @param args optional length of each round in milliseconds
+     */
+    public static void main(String[] args) {
+        long roundMillis = args.length > 0 ? Long.parseLong(args[0]) : 500;
+        new ModelBenchmark(roundMillis).runAll();
+    }
+
+    /**
+     * Run every benchmark on every board size and density
+     */
+    public void runAll() {
+        logger.info(String.format("%-16s %7s %7s %14s %10s", "benchmark", "size", "density", "ns/op", "bytes/op"));
+
+        measure("rotate", 0, 0, i -> {
+            GamePiece piece = GamePiece.createPiece(i % GamePiece.PIECES);
+            return piece.rotate(i & 3).getMask();
+        });
+        measure("createPiece", 0, 0, i -> GamePiece.createPiece(i % GamePiece.PIECES, i & 3).getValue());
+        PieceSource randomSource = new RandomPieceSource(0);
+        measure("randomSource", 0, 0, i -> randomSource.next().getValue());
+        PieceSource bagSource = new BagPieceSource(0);
+        measure("bagSource", 0, 0, i -> bagSource.next().getValue());
+
+        for (int size : SIZES) {
+            for (double density : DENSITIES) {
+                benchmarkBoard(size, density);
+            }
+        }
+        logger.info("sink {}", sink);
+    }
+
+    /**
+     * Run the grid and game benchmarks for one board size and density
+     * @param size number of rows and columns
+     * @param density fraction of blocks filled
+     */
+    private void benchmarkBoard(int size, double density) {
+        SplittableRandom random = new SplittableRandom(size * 31L + (long) (density * 100));
+
+        //Pre-generate the pieces and positions to play
+        GamePiece[] pieces = new GamePiece[INPUTS];
+        int[] xs = new int[INPUTS];
+        int[] ys = new int[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            pieces[i] = GamePiece.createPiece(random.nextInt(GamePiece.PIECES), random.nextInt(GamePiece.ROTATIONS));
+            xs[i] = random.nextInt(size);
+            ys[i] = random.nextInt(size);
+        }
+
+        Grid grid = new Grid(size, size);
+        fill(grid, density, random);
+        measure("canPlayPiece", size, density, i -> {
+            int n = i & (INPUTS - 1);
+            return grid.canPlayPiece(pieces[n], xs[n] - 1, ys[n] - 1) ? 1 : 0;
+        });
+
+        //Play a piece on the filled grid and lift it off again if it fitted, so the grid is the same before every call
+        boolean[] fits = new boolean[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            fits[i] = grid.canPlayPiece(pieces[i], xs[i] - 1, ys[i] - 1);
+        }
+        measure("playPiece", size, density, i -> {
+            int n = i & (INPUTS - 1);
+            GamePiece piece = pieces[n];
+            grid.playPiece(piece, xs[n], ys[n]);
+            long value = grid.getRowMask(ys[n]);
+            if (fits[n]) {
+                for (int bits = piece.getMask(); bits != 0; bits &= bits - 1) {
+                    int bit = Integer.numberOfTrailingZeros(bits);
+                    grid.set(xs[n] - 1 + bit % 3, ys[n] - 1 + bit / 3, 0);
+                }
+            }
+            return value;
+        });
+
+        //After a placement that clears nothing
+        GameEngine engine = new GameEngine(size, size, 0);
+        fill(engine.getGrid(), density, random);
+        engine.getGrid().clearLines(engine.getGrid().getFullRows(), engine.getGrid().getFullCols());
+        measure("afterPiece", size, density, i -> {
+            engine.afterPiece();
+            return engine.getMultiplier();
+        });
+
+        //After a placement that completes a row, which is refilled every call
+        GameEngine clearing = new GameEngine(size, size, 0);
+        fill(clearing.getGrid(), density, random);
+        measure("afterPieceClear", size, density, i -> {
+            Grid clearingGrid = clearing.getGrid();
+            int y = i % size;
+            for (int x = 0; x < size; x++) {
+                clearingGrid.set(x, y, 1 + (x & 7));
+            }
+            clearing.afterPiece();
+            return clearing.getScore();
+        });
+
+        GameEngine scoring = new GameEngine(size, size, 0);
+        measure("score", size, density, i -> scoring.score(1 + (i & 1), size));
+    }
+
+    /**
+     * Fill a grid at random to the given density
+     * @param grid the grid
+     * @param density fraction of blocks to fill
+     * @param random random generator
+     */
+    private static void fill(Grid grid, double density, SplittableRandom random) {
+        for (int y = 0; y < grid.getRows(); y++) {
+            for (int x = 0; x < grid.getCols(); x++) {
+                grid.set(x, y, random.nextDouble() < density ? 1 + random.nextInt(GamePiece.PIECES) : 0);
+            }
+        }
+    }
+
+    /**
+     * Warm up and then time an operation, logging the time and allocation per call
+     * @param name benchmark name
+     * @param size board size, or 0 if it does not use a board
+     * @param density board density
+     * @param operation the operation
+     */
+    private void measure(String name, int size, double density, Operation operation) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            round(operation);
+        }
+
+        long calls = 0;
+        long time = 0;
+        long thread = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        for (int round = 0; round < MEASURE_ROUNDS; round++) {
+            long start = System.nanoTime();
+            calls += round(operation);
+            time += System.nanoTime() - start;
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+
+        logger.info(String.format("%-16s %7s %7.2f %14.2f %10.2f",
+                name, size == 0 ? "-" : size + "x" + size, density, (double) time / calls, (double) allocated / calls));
+    }
+
+    /**
+     * Run an operation repeatedly for one round, checking the clock every 1024 calls
+     * @param operation the operation
+     * @return number of calls made
+     */
+    private long round(Operation operation) {
+        long end = System.nanoTime() + roundTime;
+        int calls = 0;
+        long result = 0;
+        do {
+            for (int i = 0; i < 1024; i++) {
+                result += operation.run(calls++);
+            }
+        } while (System.nanoTime() < end);
+        sink += result;
+        return calls;
+    }
+}
@@ -6,6 +6,8 @@ import javafx.stage.Stage;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import uk.ac.soton.comp1206.component.Multimedia;
+import uk.ac.soton.comp1206.game.ScoreRepository;
 import uk.ac.soton.comp1206.ui.GameWindow;
 
 /**
@@ -45,6 +47,12 @@ public class App extends Application {
         instance = this;
         this.stage = stage;
 
+        //Decode the sound effects before anything needs to play them
+        Multimedia.preloadSounds();
+
+        //Start reading the local scores in the background
+        ScoreRepository.getInstance().load();
+
         //Open game window
         openGame();
     }
@@ -67,6 +75,7 @@ public class App extends Application {
      */
     public void shutdown() {
         logger.info("Shutting down");
+        ScoreRepository.getInstance().close();
         System.exit(0);
     }
 
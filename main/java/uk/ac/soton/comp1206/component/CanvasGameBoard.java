@@ -0,0 +1,238 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.event.BoardClickedListener;
+import uk.ac.soton.comp1206.game.Grid;
+
+/**
+ * A CanvasGameBoard is a visual component to represent a Grid, drawn on a single Canvas instead of a GameBlock node for
+ * every block. It looks the same as a GameBoard, but however big the grid is it is one node, so large boards and many
+ * boards (such as the other players' boards in a multiplayer game) stay cheap.
+ *
+ * The board listens to the grid for changed blocks and marks them dirty. Only dirty blocks are repainted, once, just
+ * before the next frame, each copied from the TileAtlas. Clicks and hovering are turned into blocks by dividing the
+ * mouse position by the block size.
+ *
+ * Like the GameBoard, it holds no game logic, which should take place in the Grid.
+ */
+public class CanvasGameBoard extends Canvas {
+
+    private static final Logger logger = LogManager.getLogger(CanvasGameBoard.class);
+
+    /**
+     * Number of columns in the board
+     */
+    private final int cols;
+
+    /**
+     * Number of rows in the board
+     */
+    private final int rows;
+
+    /**
+     * Width of a block
+     */
+    private final double blockWidth;
+
+    /**
+     * Height of a block
+     */
+    private final double blockHeight;
+
+    /**
+     * The grid this board represents
+     */
+    private final Grid grid;
+
+    /**
+     * Blocks which need repainting, one long per row with bit x set for column x
+     */
+    private final long[] dirty;
+
+    /**
+     * Whether a repaint has been asked for
+     */
+    private boolean repaintScheduled = false;
+
+    /**
+     * The column and row of the block under the mouse, or -1
+     */
+    private int hoverX = -1, hoverY = -1;
+
+    /**
+     * The pre-drawn tiles for the block size
+     */
+    private final TileAtlas atlas;
+
+    /**
+     * The listener to call when a block is clicked
+     */
+    private BoardClickedListener blockClickedListener;
+
+    /**
+     * The listener to call when a block is right clicked
+     */
+    private BoardClickedListener rightClickedListener;
+
+    /**
+     * Create a new CanvasGameBoard, based off a given grid, with a visual width and height.
+     * @param grid linked grid
+     * @param width the visual width
+     * @param height the visual height
+     */
+    public CanvasGameBoard(Grid grid, double width, double height) {
+        super(width, height);
+        this.grid = grid;
+        this.cols = grid.getCols();
+        this.rows = grid.getRows();
+        this.blockWidth = width / cols;
+        this.blockHeight = height / rows;
+        this.dirty = new long[rows];
+        this.atlas = TileAtlas.forSize(blockWidth, blockHeight);
+
+        build();
+    }
+
+    /**
+     * Create a new CanvasGameBoard with it's own internal grid, specifying the number of columns and rows, along with
+     * the visual width and height.
+     *
+     * @param cols number of columns for internal grid
+     * @param rows number of rows for internal grid
+     * @param width the visual width
+     * @param height the visual height
+     */
+    public CanvasGameBoard(int cols, int rows, double width, double height) {
+        this(new Grid(cols, rows), width, height);
+    }
+
+    /**
+     * Listen to the grid and the mouse, and paint every block
+     */
+    private void build() {
+        logger.info("Building canvas grid: {} x {}", cols, rows);
+
+        grid.setOnBlockChanged((x, y, value) -> markDirty(x, y));
+
+        setOnMouseClicked(this::clicked);
+        setOnMouseMoved(event -> hover((int) (event.getX() / blockWidth), (int) (event.getY() / blockHeight)));
+        setOnMouseExited(event -> hover(-1, -1));
+
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < cols; x++) {
+                markDirty(x, y);
+            }
+        }
+        repaint();
+    }
+
+    /**
+     * Mark a block as needing repainting, and ask for a repaint if one has not been asked for
+     * @param x column
+     * @param y row
+     */
+    private void markDirty(int x, int y) {
+        if (x < 0 || x >= cols || y < 0 || y >= rows) {
+            return;
+        }
+        dirty[y] |= 1L << x;
+        if (!repaintScheduled) {
+            repaintScheduled = true;
+            Platform.runLater(this::repaint);
+        }
+    }
+
+    /**
+     * Repaint every dirty block
+     */
+    private void repaint() {
+        repaintScheduled = false;
+        GraphicsContext gc = getGraphicsContext2D();
+        for (int y = 0; y < rows; y++) {
+            for (long bits = dirty[y]; bits != 0; bits &= bits - 1) {
+                paintBlock(gc, Long.numberOfTrailingZeros(bits), y);
+            }
+            dirty[y] = 0;
+        }
+    }
+
+    /**
+     * Paint one block, the same way a GameBlock paints itself
+     * @param gc graphics context of the canvas
+     * @param x column
+     * @param y row
+     */
+    private void paintBlock(GraphicsContext gc, int x, int y) {
+        double left = x * blockWidth;
+        double top = y * blockHeight;
+        gc.clearRect(left, top, blockWidth, blockHeight);
+        // tiles are drawn within the block, so repainting a block never draws over its neighbours
+        atlas.draw(gc, left, top, grid.get(x, y), false, x == hoverX && y == hoverY);
+    }
+
+    /**
+     * Move the hover effect to another block
+     * @param x column, or -1 for none
+     * @param y row, or -1 for none
+     */
+    private void hover(int x, int y) {
+        if (x == hoverX && y == hoverY) {
+            return;
+        }
+        int previousX = hoverX;
+        int previousY = hoverY;
+        hoverX = x;
+        hoverY = y;
+        markDirty(previousX, previousY);
+        markDirty(x, y);
+    }
+
+    /**
+     * Find the block clicked on and call the attached listener
+     * @param event mouse event
+     */
+    private void clicked(MouseEvent event) {
+        int x = (int) (event.getX() / blockWidth);
+        int y = (int) (event.getY() / blockHeight);
+        if (x < 0 || x >= cols || y < 0 || y >= rows) {
+            return;
+        }
+        GameBlockCoordinate block = new GameBlockCoordinate(x, y);
+        logger.info("Block clicked: {}", block);
+
+        BoardClickedListener listener = event.getButton() == MouseButton.PRIMARY ? blockClickedListener : rightClickedListener;
+        if (listener != null) {
+            listener.blockClicked(block);
+        }
+    }
+
+    /**
+     * Set the listener to handle an event when a block is clicked
+     * @param listener listener to add
+     */
+    public void setOnBlockClick(BoardClickedListener listener) {
+        this.blockClickedListener = listener;
+    }
+
+    /**
+     * Set the listener to handle an event when a block is right clicked
+     * @param listener listener to add
+     */
+    public void setOnRightClicked(BoardClickedListener listener) {
+        this.rightClickedListener = listener;
+    }
+
+    /**
+     * return the grid
+     * @return return the grid
+     */
+    public Grid getGrid() {
+        return grid;
+    }
+}
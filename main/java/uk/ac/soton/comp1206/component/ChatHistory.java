@@ -0,0 +1,100 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.collections.ObservableListBase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ChatHistory is an observable list of the latest chat lines, held in a ring of fixed size. Once the ring is full,
+ * adding a line drops the oldest, so however long the chat goes on the history never grows past its capacity.
+ *
+ * It must be used on the JavaFX thread.
+ */
+public class ChatHistory extends ObservableListBase<String> {
+
+    /**
+     * the lines held, from head onwards
+     */
+    private final String[] lines;
+
+    /**
+     * position of the oldest line in the ring
+     */
+    private int head = 0;
+
+    /**
+     * number of lines held
+     */
+    private int size = 0;
+
+    /**
+     * Create an empty chat history
+     * @param capacity the most lines held
+     */
+    public ChatHistory(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        this.lines = new String[capacity];
+    }
+
+    /**
+     * Add a line at the end, dropping the oldest line if the history is full
+     * @param line the line
+     */
+    public void append(String line) {
+        beginChange();
+        if (size == lines.length) {
+            String dropped = lines[head];
+            head = (head + 1) % lines.length;
+            size--;
+            nextRemove(0, dropped);
+        }
+        lines[(head + size) % lines.length] = line;
+        size++;
+        nextAdd(size - 1, size);
+        endChange();
+    }
+
+    /**
+     * Remove every line
+     */
+    @Override
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        List<String> removed = new ArrayList<>(this);
+        beginChange();
+        for (int i = 0; i < size; i++) {
+            lines[(head + i) % lines.length] = null;
+        }
+        head = 0;
+        size = 0;
+        nextRemove(0, removed);
+        endChange();
+    }
+
+    /**
+     * Get a line
+     * @param index position of the line, 0 being the oldest
+     * @return the line
+     */
+    @Override
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Line " + index + " of " + size);
+        }
+        return lines[(head + index) % lines.length];
+    }
+
+    /**
+     * Get the number of lines held
+     * @return lines held
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+}
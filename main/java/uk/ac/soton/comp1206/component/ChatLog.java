@@ -0,0 +1,57 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+
+/**
+ * A ChatLog shows the chat in a channel or game. The lines are kept in a ChatHistory, so only the latest are held, and
+ * shown in a ListView, which only has nodes for the lines which are visible and reuses them as the log scrolls. A busy
+ * chat therefore costs the same to lay out however long it has been going.
+ */
+public class ChatLog extends ListView<String> {
+
+    /**
+     * the lines shown
+     */
+    private final ChatHistory history;
+
+    /**
+     * Create an empty chat log
+     * @param capacity the most lines kept
+     */
+    public ChatLog(int capacity) {
+        this.history = new ChatHistory(capacity);
+        setItems(history);
+        getStyleClass().add("chat-log");
+        setFocusTraversable(false);
+        setCellFactory(list -> new ListCell<>() {
+            {
+                // wrap long lines to the width of the log rather than scrolling sideways
+                setWrapText(true);
+                setPrefWidth(0);
+            }
+
+            @Override
+            protected void updateItem(String line, boolean empty) {
+                super.updateItem(line, empty);
+                setText(empty ? null : line);
+            }
+        });
+    }
+
+    /**
+     * Add a line to the end of the log and scroll down to it
+     * @param line the line
+     */
+    public void addMessage(String line) {
+        history.append(line);
+        scrollTo(history.size() - 1);
+    }
+
+    /**
+     * Remove every line
+     */
+    public void clearMessages() {
+        history.clear();
+    }
+}
@@ -0,0 +1,96 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.animation.AnimationTimer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The FadeAnimator runs the line clear fades of every block on a board from a single AnimationTimer.
+ *
+ * Each fade lasts the same time whatever the frame rate, as the fade level is worked out from the pulse timestamp
+ * rather than stepped down every frame. The timer is only registered while a block is fading, and stops itself once
+ * the last fade has finished.
+ */
+public class FadeAnimator extends AnimationTimer {
+
+    /**
+     * How long a fade lasts in nanoseconds, the same as the old 20 frames at 60 frames a second
+     */
+    private static final long FADE_TIME = 333_000_000L;
+
+    /**
+     * The blocks fading
+     */
+    private final List<GameBlock> blocks = new ArrayList<>();
+
+    /**
+     * When each block started fading, or -1 if it starts on the next pulse
+     */
+    private long[] starts = new long[16];
+
+    /**
+     * Whether the timer is registered
+     */
+    private boolean running = false;
+
+    /**
+     * Create a new FadeAnimator with no blocks fading
+     */
+    public FadeAnimator() {
+    }
+
+    /**
+     * Start fading a block, restarting the fade if it is already fading
+     * @param block the block
+     */
+    public void fadeOut(GameBlock block) {
+        // each block remembers its own slot, so clearing many blocks never searches the list
+        int index = block.fadeSlot;
+        if (index < 0) {
+            index = blocks.size();
+            blocks.add(block);
+            block.fadeSlot = index;
+            if (index == starts.length) {
+                starts = Arrays.copyOf(starts, index * 2);
+            }
+        }
+        // fades start from the next pulse, so blocks cleared together stay in step
+        starts[index] = -1;
+        if (!running) {
+            running = true;
+            start();
+        }
+    }
+
+    /**
+     * Move every fade on to the time of this pulse, and stop once none are left
+     * @param now the time of this pulse in nanoseconds
+     */
+    @Override
+    public void handle(long now) {
+        int kept = 0;
+        for (int i = 0; i < blocks.size(); i++) {
+            GameBlock block = blocks.get(i);
+            long start = starts[i] < 0 ? now : starts[i];
+            double fade = 1 - (double) (now - start) / FADE_TIME;
+            if (fade <= 0 || block.getValue() != 0) {
+                // finished, or a new piece has been placed over it
+                block.fadeSlot = -1;
+                block.paint();
+                continue;
+            }
+            block.paintFade(fade);
+            blocks.set(kept, block);
+            block.fadeSlot = kept;
+            starts[kept] = start;
+            kept++;
+        }
+        blocks.subList(kept, blocks.size()).clear();
+        if (kept == 0) {
+            running = false;
+            stop();
+        }
+    }
+}
@@ -1,11 +1,9 @@
 package uk.ac.soton.comp1206.component;
 
-import javafx.animation.AnimationTimer;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.value.ObservableValue;
 import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -15,7 +13,8 @@ import org.apache.logging.log4j.Logger;
  *
  * Extends Canvas and is responsible for drawing itself.
  *
- * Displays an empty square (when the value is 0) or a coloured square depending on value.
+ * Displays an empty square (when the value is 0) or a coloured square depending on value. Every look is drawn once per
+ * block size into a shared TileAtlas, so painting is a single copy from the atlas.
  *
  * The GameBlock value should be bound to a corresponding block in the Grid model.
  */
@@ -56,6 +55,10 @@ public class GameBlock extends Canvas {
      * height of the graphic context
      */
     private final double height;
+    /**
+     * the pre-drawn tiles for this block size
+     */
+    private final TileAtlas atlas;
     /**
      * judge whether the block is the center of the piece
      */
@@ -80,9 +83,9 @@ public class GameBlock extends Canvas {
      */
     public boolean hoverOrNot = false;
     /**
-     * a timer for animation
+     * the position of this block among the blocks its board's FadeAnimator is fading, or -1 if it is not fading
      */
-    public AnimationTimer animationTimer;
+    int fadeSlot = -1;
 
 
     /**
@@ -99,6 +102,7 @@ public class GameBlock extends Canvas {
         this.height = height;
         this.x = x;
         this.y = y;
+        this.atlas = TileAtlas.forSize(width, height);
 
         //A canvas needs a fixed width and height
         setWidth(width);
@@ -125,19 +129,10 @@ public class GameBlock extends Canvas {
      * Handle painting of the block canvas
      */
     public void paint() {
-        //If the block is empty, paint as empty
-        if(value.get() == 0) {
-            paintEmpty();
-        } else {
-            //If the block is not empty, paint with the colour represented by the value
-            paintColor(COLOURS[value.get()]);
-        }
-        if(center){
-            paintCentralDot();
-        }
-        if(hoverOrNot){
-            paintHover();
-        }
+        var gc = getGraphicsContext2D();
+        gc.clearRect(0,0,width,height);
+        //The empty tile for 0, otherwise the tile with the colour represented by the value
+        atlas.draw(gc, 0, 0, value.get(), center, hoverOrNot);
     }
 
     /**
@@ -145,49 +140,8 @@ public class GameBlock extends Canvas {
      */
     private void paintEmpty() {
         var gc = getGraphicsContext2D();
-
-        //Clear
         gc.clearRect(0,0,width,height);
-
-        //Fill
-        gc.setFill(Color.web("BLACK", 0.5));
-        gc.fillRect(0,0, width, height);
-
-        //Border
-        gc.setStroke(Color.WHITE);
-        gc.strokeRect(0,0,width,height);
-    }
-
-    /**
-     * Paint this canvas with the given colour
-     * @param colour the colour to paint
-     */
-    private void paintColor(Paint colour) {
-        var gc = getGraphicsContext2D();
-
-        //Clear
-        gc.clearRect(0,0,width,height);
-
-        //Colour fill
-        gc.setFill(colour);
-        gc.fillRect(0,0, width, height);
-
-        //Border
-        gc.setStroke(Color.BLACK);
-        gc.strokeRect(0,0,width,height);
-
-        //Triangle Fill
-        gc.setFill(Color.color(1,1, 1, 0.5));
-        gc.fillPolygon(new double[]{0.0, 0.0, width}, new double[]{0, height, height}, 3);
-    }
-
-    /**
-     * paint the central dot
-     */
-    private void paintCentralDot(){
-        GraphicsContext graphicsContext = this.getGraphicsContext2D();
-        graphicsContext.setFill(Color.color(1, 1, 1, 1));
-        graphicsContext.fillOval(width / 4, height / 4, width / 2, height / 2);
+        atlas.draw(gc, 0, 0, 0, false, false);
     }
 
     /**
@@ -208,47 +162,25 @@ public class GameBlock extends Canvas {
     }
 
     /**
-     * paint the hover animation
+     * use this to flash and then fades out to indicate a cleared block. The fade is run by the board's FadeAnimator.
      */
-    private void paintHover() {
-        var gc = getGraphicsContext2D();
-        gc.setStroke(Color.WHITE);
-        gc.strokeRect(0,0,width,height);
-        if(value.get() == 0) {
-            gc.setFill(Color.WHITE.deriveColor(0,0,1,0.5));
-            gc.fillRect(0,0, width, height);
-        }
+    public void fadeOut() {
+        gameBoard.fadeOut(this);
     }
 
     /**
-     * use this to flash and then fades out to indicate a cleared block
+     * paint one frame of the fade out: an empty block under a white flash
+     * @param fade how strong the flash is, from 1 down to 0
      */
-    public void fadeOut() {
-        this.animationTimer = new AnimationTimer() {
-
-            // tore the current fade level, which will gradually decrease from 1 to 0
-            double fade = 1;
-            @Override
-            public void handle(long l) {
-                {
-                    // draw an empty object on the screen
-                    paintEmpty();
-                    var graphicsContext = getGraphicsContext2D();
-                    // gradually decrease the opacity of the object on the screen
-                    fade = fade - 0.05;
-                    if (fade <= 0) {
-                        animationTimer.stop();
-                        // remove the reference to the object and allow it to be garbage collected
-                        animationTimer = null;
-                    }
-                    // set the fill color of the rectangle to a semi-transparent white color
-                    graphicsContext.setFill(Color.WHITE.deriveColor(0,0,1,fade));
-                    // draw a filled rectangle on the screen that covers the entire object
-                    graphicsContext.fillRect(0,0,width,height);
-                }
-            }
-        };
-        animationTimer.start();
+    void paintFade(double fade) {
+        // draw an empty object on the screen
+        paintEmpty();
+        var graphicsContext = getGraphicsContext2D();
+        // draw a semi-transparent white rectangle on the screen that covers the entire object
+        graphicsContext.setGlobalAlpha(fade);
+        graphicsContext.setFill(Color.WHITE);
+        graphicsContext.fillRect(0,0,width,height);
+        graphicsContext.setGlobalAlpha(1);
     }
 
     /**
@@ -10,8 +10,6 @@ import uk.ac.soton.comp1206.event.BlockClickedListener;
 import uk.ac.soton.comp1206.event.RightClickedListener;
 import uk.ac.soton.comp1206.game.Grid;
 
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * A GameBoard is a visual component to represent the visual GameBoard.
@@ -74,6 +72,11 @@ public class GameBoard extends GridPane {
      */
     private GameBlock hoverBlock;
 
+    /**
+     * runs the fades of every block on this board from one timer
+     */
+    private final FadeAnimator fadeAnimator = new FadeAnimator();
+
 
     /**
      * Create a new GameBoard, based off a given grid, with a visual width and height.
@@ -255,14 +258,35 @@ public class GameBoard extends GridPane {
         gameBlock.setHovering(false);
     }
 
+    /**
+     * fade out a single block
+     * @param block the block
+     */
+    public void fadeOut(GameBlock block) {
+        fadeAnimator.fadeOut(block);
+    }
+
     /**
      * set the fade out effect
-     * @param gameBlockCoordinates the coordinates of game blocks
+     * @param rowMask the rows to fade, bit y for row y
+     * @param colMask the columns to fade, bit x for column x
      */
-    public void fadeOut(Set<GameBlockCoordinate> gameBlockCoordinates) {
-        for (GameBlockCoordinate gameBlockCoordinate: gameBlockCoordinates){
-            logger.info("Fade out");
-            this.getBlock(gameBlockCoordinate.getX(), gameBlockCoordinate.getY()).fadeOut();
+    public void fadeOut(long rowMask, long colMask) {
+        logger.info("Fade out");
+        for (long bits = rowMask; bits != 0; bits &= bits - 1) {
+            int y = Long.numberOfTrailingZeros(bits);
+            for (int x = 0; x < cols; x++) {
+                fadeAnimator.fadeOut(this.getBlock(x, y));
+            }
+        }
+        for (long bits = colMask; bits != 0; bits &= bits - 1) {
+            int x = Long.numberOfTrailingZeros(bits);
+            for (int y = 0; y < rows; y++) {
+                // blocks in a cleared row are already fading
+                if ((rowMask & (1L << y)) == 0) {
+                    fadeAnimator.fadeOut(this.getBlock(x, y));
+                }
+            }
         }
     }
 
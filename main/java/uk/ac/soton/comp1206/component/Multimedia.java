@@ -1,39 +1,118 @@
 package uk.ac.soton.comp1206.component;
 
+import javafx.scene.media.AudioClip;
 import javafx.scene.media.Media;
 import javafx.scene.media.MediaPlayer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Multimedia is a class used to play sounds
+ *
+ * Sound effects are decoded once, when they are preloaded at startup (or the first time they are played), and kept in
+ * memory as AudioClips. Each effect is one voice: playing it again restarts it. At most MAX_VOICES effects play at
+ * once, and starting another stops the one which started first. Effects can be played from any thread.
  */
 
 public class Multimedia {
     private static final Logger logger = LogManager.getLogger(Multimedia.class);
+
+    /**
+     * The sound effects in /sounds, decoded by preloadSounds
+     */
+    private static final String[] EFFECTS = {
+            "clear.wav", "explode.wav", "fail.wav", "intro.mp3", "level.wav", "lifegain.wav", "lifelose.wav",
+            "message.wav", "place.wav", "pling.wav", "rotate.wav", "transition.wav"
+    };
+
+    /**
+     * Most sound effects played at once
+     */
+    private static final int MAX_VOICES = 4;
+
     /**
-     * documentPlayer is used to play music from documents
+     * Decoded sound effects by file name
      */
-    public static MediaPlayer documentPlayer;
+    private static final Map<String, AudioClip> effects = new ConcurrentHashMap<>();
+
+    /**
+     * Sound effects which could not be loaded, so they are only reported once
+     */
+    private static final Set<String> missingEffects = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The sound effects which may still be playing, oldest first
+     */
+    private static final ArrayDeque<AudioClip> voices = new ArrayDeque<>();
+
     /**
      * bgmPlayer is used to play the background music
      */
     public static MediaPlayer bgmPlayer;
 
+    /**
+     * Decode every sound effect, so none has to be loaded while playing
+     */
+    public static void preloadSounds() {
+        for (String effect : EFFECTS) {
+            getEffect(effect);
+        }
+        logger.info("Preloaded {} sound effects", effects.size());
+    }
+
+    /**
+     * Get a sound effect, decoding it if it has not been used before
+     * @param effect file name in /sounds
+     * @return the effect, or null if there is no such file or it could not be loaded
+     */
+    private static AudioClip getEffect(String effect) {
+        if (missingEffects.contains(effect)) {
+            return null;
+        }
+        return effects.computeIfAbsent(effect, name -> {
+            URL resource = Multimedia.class.getResource("/sounds/" + name);
+            if (resource == null) {
+                logger.error("No such sound effect " + name);
+                missingEffects.add(name);
+                return null;
+            }
+            try {
+                return new AudioClip(resource.toExternalForm());
+            } catch (Exception e) {
+                logger.error("Unable to load sound effect " + name + ": " + e.getMessage());
+                missingEffects.add(name);
+                return null;
+            }
+        });
+    }
+
     /**
      * Play the music from given documents
      * @param documentMusic music from documents
      */
     public static void playDocumentMusic(String documentMusic){
-        String document = Multimedia.class.getResource("/sounds/" + documentMusic).toExternalForm();
-        try{
-            Media media = new Media(document);
-            documentPlayer = new MediaPlayer(media);
-            documentPlayer.play();
-            logger.info("Played document music " + documentMusic);
-        } catch (Exception e){
-            e.printStackTrace();
+        AudioClip clip = getEffect(documentMusic);
+        if (clip == null) {
+            return;
         }
+        synchronized (voices) {
+            // playing an effect again reuses its voice
+            voices.remove(clip);
+            clip.stop();
+            voices.removeIf(voice -> !voice.isPlaying());
+            while (voices.size() >= MAX_VOICES) {
+                voices.removeFirst().stop();
+            }
+            clip.play();
+            voices.addLast(clip);
+        }
+        logger.debug("Played document music " + documentMusic);
     }
 
     /**
@@ -41,7 +120,12 @@ public class Multimedia {
      * @param bgmMusic background music
      */
     public static void playBgmMusic(String bgmMusic){
-        String bgm = Multimedia.class.getResource("/music/" + bgmMusic).toExternalForm();
+        URL resource = Multimedia.class.getResource("/music/" + bgmMusic);
+        if (resource == null) {
+            logger.error("No such music " + bgmMusic);
+            return;
+        }
+        String bgm = resource.toExternalForm();
         try{
             Media media = new Media(bgm);
             bgmPlayer = new MediaPlayer(media);
@@ -59,6 +143,9 @@ public class Multimedia {
      * stop the bgm
      */
     public static void stopBgmMusic() {
+        if (bgmPlayer == null) {
+            return;
+        }
         bgmPlayer.stop();
         logger.info("Stopped bgm");
     }
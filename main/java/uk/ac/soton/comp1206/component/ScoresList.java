@@ -3,20 +3,29 @@ package uk.ac.soton.comp1206.component;
 import javafx.animation.FadeTransition;
 import javafx.beans.property.ListProperty;
 import javafx.beans.property.SimpleListProperty;
-import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import javafx.collections.ListChangeListener;
 import javafx.scene.layout.VBox;
 import javafx.scene.text.Text;
 import javafx.util.Duration;
 import javafx.util.Pair;
+import uk.ac.soton.comp1206.game.Leaderboard;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * ScoresList is a class contains all the scores
+ *
+ * Only the top scores are shown, kept in a Leaderboard. Adding scores to the list offers just those scores to the
+ * leaderboard, and only the rows from the first new score down are updated. Any other change ranks the whole list
+ * again, and only rows whose score changed are updated. Either way, only rows showing a new score fade in.
  */
 public class ScoresList extends VBox {
+    /**
+     * most scores shown
+     */
+    private static final int SHOWN = 10;
     /**
      * list of scores
      */
@@ -25,6 +34,10 @@ public class ScoresList extends VBox {
      * list of multiplayer
      */
     protected ArrayList<String> multiplayer = new ArrayList<>();
+    /**
+     * the scores shown
+     */
+    private final Leaderboard leaderboard = new Leaderboard(SHOWN);
 
     /**
      * score list
@@ -52,38 +65,82 @@ public class ScoresList extends VBox {
     }
 
     /**
-     * some preparations for updating
-     * @param newValues new data of players' scores
+     * show a score in a row, adding the row if there is not one
+     * @param rank the row
+     * @param pair name and score
+     * @param isNew whether the score was not shown before
      */
-    private void updatePrepare(ObservableList<Pair<String, Integer>> newValues){
-        this.getChildren().clear();
-        int count = 1;
-        for(Pair pair: newValues) {
-            // only can hold 10 users' scores
-            if (count < 11) {
-                Text scoreTtl = new Text(pair.getKey() + " : " + pair.getValue());
-                if(multiplayer.contains(pair.getKey())) {
-                    scoreTtl.getStyleClass().add("strike");
-                } else {
-                    scoreTtl.getStyleClass().add("scorelist");
-                }
-                this.getChildren().add(scoreTtl);
-                this.reveal(scoreTtl);
-                count ++;
-            } else {
-                break;
+    private void showRow(int rank, Pair<String, Integer> pair, boolean isNew) {
+        Text scoreTtl;
+        if (rank < this.getChildren().size()) {
+            scoreTtl = (Text) this.getChildren().get(rank);
+        } else {
+            scoreTtl = new Text();
+            this.getChildren().add(scoreTtl);
+        }
+        String text = pair.getKey() + " : " + pair.getValue();
+        if (!text.equals(scoreTtl.getText())) {
+            scoreTtl.setText(text);
+        }
+        String style = multiplayer.contains(pair.getKey()) ? "strike" : "scorelist";
+        if (scoreTtl.getStyleClass().size() != 1 || !scoreTtl.getStyleClass().contains(style)) {
+            scoreTtl.getStyleClass().setAll(style);
+        }
+        if (isNew) {
+            this.reveal(scoreTtl);
+        }
+    }
+
+    /**
+     * show the leaderboard from a rank down
+     * @param from first rank to show
+     * @param shown the scores shown before
+     */
+    private void showFrom(int from, List<Pair<String, Integer>> shown) {
+        for (int rank = from; rank < leaderboard.size(); rank++) {
+            Pair<String, Integer> pair = leaderboard.get(rank);
+            boolean moved = rank >= shown.size() || shown.get(rank) != pair;
+            if (moved) {
+                showRow(rank, pair, !shown.contains(pair));
             }
         }
+        // the leaderboard only shrinks when it is ranked again
+        if (this.getChildren().size() > leaderboard.size()) {
+            this.getChildren().remove(leaderboard.size(), this.getChildren().size());
+        }
     }
 
     /**
-     * update new data
-     * @param values data
-     * @param oldValues old data
-     * @param newValues new data
+     * update the rows after the list changes
+     * @param change the change
      */
-    private void update(ObservableValue<?  extends ObservableList<Pair<String, Integer>>> values, ObservableList<Pair<String, Integer>> oldValues, ObservableList<Pair<String, Integer>> newValues){
-        this.updatePrepare(newValues);
+    private void update(ListChangeListener.Change<? extends Pair<String, Integer>> change) {
+        List<Pair<String, Integer>> shown = leaderboard.toList();
+        boolean onlyAdded = true;
+        while (change.next()) {
+            if (change.wasPermutated() || change.wasRemoved() || change.wasUpdated()) {
+                onlyAdded = false;
+            }
+        }
+        if (onlyAdded) {
+            change.reset();
+            int first = SHOWN;
+            while (change.next()) {
+                for (Pair<String, Integer> pair : change.getAddedSubList()) {
+                    int rank = leaderboard.offer(pair);
+                    if (rank >= 0) {
+                        first = Math.min(first, rank);
+                    }
+                }
+            }
+            showFrom(first, shown);
+            return;
+        }
+        leaderboard.clear();
+        for (Pair<String, Integer> pair : scores) {
+            leaderboard.offer(pair);
+        }
+        showFrom(0, shown);
     }
 
     /**
@@ -94,24 +151,26 @@ public class ScoresList extends VBox {
         return this.scores;
     }
 
+    /**
+     * get the scores shown, highest first
+     * @return the leaderboard
+     */
+    public Leaderboard getLeaderboard() {
+        return this.leaderboard;
+    }
+
     /**
      * remove dead users
      * @param item string
      */
     public void removeUselessElements(String item) {
-        int indexToRemove = -1;
         this.multiplayer.add(item);
         for (int i = 0; i < scores.size(); i++) {
-            Pair<String, Integer> pair = scores.get(i);
-            if (pair.getKey().equals(item)) {
-                indexToRemove = i;
-                this.getChildren().get(i).getStyleClass().add("trike");
+            if (scores.get(i).getKey().equals(item)) {
+                scores.remove(i);
                 break;
             }
         }
-        if (indexToRemove != -1) {
-            scores.remove(indexToRemove);
-        }
     }
 
 }
@@ -0,0 +1,175 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A TileAtlas holds every way a block can look at one block size, drawn once into a single image: a tile for every
+ * value in GameBlock.COLOURS (0 being empty), each plain, with the centre dot, hovered, and with both. Painting a block
+ * is then a single drawImage from the atlas.
+ *
+ * Atlases are built the first time a block size is asked for and shared by every block of that size. They must be used
+ * on the JavaFX thread.
+ */
+public class TileAtlas {
+
+    private static final Logger logger = LogManager.getLogger(TileAtlas.class);
+
+    /**
+     * Number of variants of each tile: plain, centre dot, hovered, centre dot and hovered
+     */
+    private static final int VARIANTS = 4;
+
+    /**
+     * Space left around every tile in the atlas, so borders drawn on the edge of a tile do not spill into the next
+     */
+    private static final int PADDING = 1;
+
+    /**
+     * Fill of an empty block
+     */
+    private static final Color EMPTY = Color.web("BLACK", 0.5);
+
+    /**
+     * Fill of the triangle drawn over a filled block
+     */
+    private static final Color SHINE = Color.color(1, 1, 1, 0.5);
+
+    /**
+     * Fill of an empty block which is hovered
+     */
+    private static final Color HOVER = Color.WHITE.deriveColor(0, 0, 1, 0.5);
+
+    /**
+     * Atlases already built, by block size
+     */
+    private static final Map<String, TileAtlas> atlases = new HashMap<>();
+
+    /**
+     * Width of a tile
+     */
+    private final double width;
+
+    /**
+     * Height of a tile
+     */
+    private final double height;
+
+    /**
+     * Distance between the left edges of neighbouring tiles in the atlas
+     */
+    private final int pitchX;
+
+    /**
+     * Distance between the top edges of neighbouring tiles in the atlas
+     */
+    private final int pitchY;
+
+    /**
+     * The atlas image
+     */
+    private final Image image;
+
+    /**
+     * Get the atlas for a block size, building it if it has not been used before
+     * @param width width of a block
+     * @param height height of a block
+     * @return the atlas
+     */
+    public static TileAtlas forSize(double width, double height) {
+        return atlases.computeIfAbsent(width + "x" + height, size -> new TileAtlas(width, height));
+    }
+
+    /**
+     * Draw every tile into a new atlas
+     * @param width width of a block
+     * @param height height of a block
+     */
+    private TileAtlas(double width, double height) {
+        this.width = width;
+        this.height = height;
+        this.pitchX = (int) Math.ceil(width) + 2 * PADDING;
+        this.pitchY = (int) Math.ceil(height) + 2 * PADDING;
+        logger.info("Building tile atlas for {} x {} blocks", width, height);
+
+        Canvas canvas = new Canvas(pitchX * GameBlock.COLOURS.length, pitchY * VARIANTS);
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        for (int variant = 0; variant < VARIANTS; variant++) {
+            for (int value = 0; value < GameBlock.COLOURS.length; value++) {
+                gc.save();
+                gc.translate(value * pitchX + PADDING, variant * pitchY + PADDING);
+                paintTile(gc, value, (variant & 1) != 0, (variant & 2) != 0);
+                gc.restore();
+            }
+        }
+
+        SnapshotParameters parameters = new SnapshotParameters();
+        parameters.setFill(Color.TRANSPARENT);
+        this.image = canvas.snapshot(parameters, null);
+    }
+
+    /**
+     * Paint one tile at the origin
+     * @param gc graphics context
+     * @param value the value of the block, 0 for empty
+     * @param center whether to draw the centre dot
+     * @param hover whether the block is hovered
+     */
+    private void paintTile(GraphicsContext gc, int value, boolean center, boolean hover) {
+        if (value == 0) {
+            //Fill
+            gc.setFill(EMPTY);
+            gc.fillRect(0, 0, width, height);
+
+            //Border
+            gc.setStroke(Color.WHITE);
+            gc.strokeRect(0, 0, width, height);
+        } else {
+            //Colour fill
+            gc.setFill(GameBlock.COLOURS[value]);
+            gc.fillRect(0, 0, width, height);
+
+            //Border
+            gc.setStroke(Color.BLACK);
+            gc.strokeRect(0, 0, width, height);
+
+            //Triangle Fill
+            gc.setFill(SHINE);
+            gc.fillPolygon(new double[]{0.0, 0.0, width}, new double[]{0, height, height}, 3);
+        }
+        if (center) {
+            gc.setFill(Color.WHITE);
+            gc.fillOval(width / 4, height / 4, width / 2, height / 2);
+        }
+        if (hover) {
+            gc.setStroke(Color.WHITE);
+            gc.strokeRect(0, 0, width, height);
+            if (value == 0) {
+                gc.setFill(HOVER);
+                gc.fillRect(0, 0, width, height);
+            }
+        }
+    }
+
+    /**
+     * Draw a block from the atlas
+     * @param gc graphics context to draw on
+     * @param x left edge of the block
+     * @param y top edge of the block
+     * @param value the value of the block, 0 for empty
+     * @param center whether to draw the centre dot
+     * @param hover whether the block is hovered
+     */
+    public void draw(GraphicsContext gc, double x, double y, int value, boolean center, boolean hover) {
+        int variant = (center ? 1 : 0) | (hover ? 2 : 0);
+        gc.drawImage(image, value * pitchX + PADDING, variant * pitchY + PADDING, width, height, x, y, width, height);
+    }
+}
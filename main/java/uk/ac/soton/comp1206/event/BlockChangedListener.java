@@ -0,0 +1,16 @@
+package uk.ac.soton.comp1206.event;
+
+/**
+ * The Block Changed listener is told whenever a block in a Grid is set, so a board drawing the grid knows which blocks
+ * to repaint without binding a property to every block.
+ */
+public interface BlockChangedListener {
+
+    /**
+     * Handle a block being set
+     * @param x column
+     * @param y row
+     * @param value the new value
+     */
+    void blockChanged(int x, int y, int value);
+}
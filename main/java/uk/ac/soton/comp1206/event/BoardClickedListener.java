@@ -0,0 +1,16 @@
+package uk.ac.soton.comp1206.event;
+
+import uk.ac.soton.comp1206.component.GameBlockCoordinate;
+
+/**
+ * The Board Clicked listener is used to handle a click on a board which has no GameBlock nodes, such as the
+ * CanvasGameBoard. It passes the position of the block that was clicked.
+ */
+public interface BoardClickedListener {
+
+    /**
+     * Handle a block clicked event
+     * @param block the position of the block that was clicked
+     */
+    void blockClicked(GameBlockCoordinate block);
+}
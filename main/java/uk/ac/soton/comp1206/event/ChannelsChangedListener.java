@@ -0,0 +1,17 @@
+package uk.ac.soton.comp1206.event;
+
+import java.util.List;
+
+/**
+ * The Channels Changed Listener is used by the ChannelService to pass on the channels which have been opened or closed
+ * since the channel list was last received.
+ */
+public interface ChannelsChangedListener {
+
+    /**
+     * Handle channels being opened or closed. Called on the network thread.
+     * @param added channels which have been opened
+     * @param removed channels which have been closed
+     */
+    void channelsChanged(List<String> added, List<String> removed);
+}
@@ -1,18 +1,13 @@
 package uk.ac.soton.comp1206.event;
 
-import javafx.beans.property.IntegerProperty;
-import uk.ac.soton.comp1206.component.GameBlockCoordinate;
-
-import java.util.HashSet;
-import java.util.Set;
-
 /**
  * listener for lines clearing
  */
 public interface LineClearedListener {
     /**
      * lines been cleaned
-     * @param gameBlockCoordinateSet coordinates of game blocks
+     * @param rows the rows which were cleared, bit y is set for row y
+     * @param cols the columns which were cleared, bit x is set for column x
      */
-    void lineCleared(Set<GameBlockCoordinate> gameBlockCoordinateSet);
+    void lineCleared(long rows, long cols);
 }
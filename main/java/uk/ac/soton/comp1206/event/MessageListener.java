@@ -0,0 +1,16 @@
+package uk.ac.soton.comp1206.event;
+
+import uk.ac.soton.comp1206.network.Message;
+
+/**
+ * The Message Listener is used for listening to decoded messages from the server, for the commands it subscribed to
+ * on the Communicator.
+ */
+public interface MessageListener {
+
+    /**
+     * Handle a decoded message received by the Communicator
+     * @param message the message that was received
+     */
+    void receiveMessage(Message message);
+}
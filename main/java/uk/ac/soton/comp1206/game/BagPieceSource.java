@@ -0,0 +1,56 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.SplittableRandom;
+
+/**
+ * A PieceSource which deals pieces from a shuffled bag holding one of every piece. When the bag is empty it is
+ * refilled and shuffled again, so every piece turns up once in every 15 and there are no long droughts. The same seed
+ * always gives the same sequence of pieces.
+ */
+public class BagPieceSource implements PieceSource {
+
+    /**
+     * random generator used to shuffle the bag
+     */
+    private final SplittableRandom random;
+
+    /**
+     * the bag of piece numbers, reused for every shuffle
+     */
+    private final int[] bag = new int[GamePiece.PIECES];
+
+    /**
+     * the position of the next piece in the bag
+     */
+    private int position = GamePiece.PIECES;
+
+    /**
+     * Create a new bag piece source
+     * @param seed the seed for the sequence
+     */
+    public BagPieceSource(long seed) {
+        this.random = new SplittableRandom(seed);
+        for (int piece = 0; piece < bag.length; piece++) {
+            bag[piece] = piece;
+        }
+    }
+
+    /**
+     * Get the next piece from the bag, shuffling a new bag when it runs out
+     * @return the next piece
+     */
+    @Override
+    public GamePiece next() {
+        if (position == bag.length) {
+            // Fisher-Yates shuffle
+            for (int i = bag.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = bag[i];
+                bag[i] = bag[j];
+                bag[j] = swap;
+            }
+            position = 0;
+        }
+        return GamePiece.createPiece(bag[position++]);
+    }
+}
@@ -6,51 +6,39 @@ import javafx.beans.property.SimpleIntegerProperty;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.component.GameBlock;
-import uk.ac.soton.comp1206.component.GameBlockCoordinate;
 import uk.ac.soton.comp1206.component.Multimedia;
 import uk.ac.soton.comp1206.event.GameLoopListener;
 import uk.ac.soton.comp1206.event.GameOverListener;
 import uk.ac.soton.comp1206.event.LineClearedListener;
 import uk.ac.soton.comp1206.event.NextPieceListener;
 
-import java.util.HashSet;
-import java.util.Random;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The Game class handles the main logic, state and properties of the TetrECS game. Methods to manipulate the game state
  * and to handle actions made by the player should take place inside this class.
+ *
+ * The rules themselves live in GameEngine. The Game links them to the user interface with properties, sounds, listeners
+ * and the game timer.
+ *
+ * The game timer runs on a single scheduler thread owned by the game. Placing a piece moves the deadline for losing a
+ * life by cancelling the pending task and scheduling a new one, so no threads are created while playing.
+ *
+ * Only that thread ever changes the state of the game. Placing, rotating and swapping pieces are queued to it as
+ * commands from the user interface, along with the timer running out. After each command the game publishes an Update
+ * (the score, lives, pieces and board, plus anything which happened) to the JavaFX thread. If the user interface has
+ * not shown the last update yet, the new one is merged into it, so a burst of input is shown in a single frame.
  */
-public class Game {
+public class Game extends GameEngine {
 
     private static final Logger logger = LogManager.getLogger(Game.class);
 
-    /**
-     * Number of rows
-     */
-    protected final int rows;
-
-    /**
-     * Number of columns
-     */
-    protected final int cols;
-
-    /**
-     * The grid model linked to the game
-     */
-    protected final Grid grid;
-    /**
-     * current piece
-     */
-    protected GamePiece currentPiece;
-
-    /**
-     * following piece
-     */
-    protected GamePiece followingPiece;
-
     /**
      * current score
      */
@@ -84,13 +72,33 @@ public class Game {
      */
     protected GameOverListener gameOverListener;
     /**
-     * game timer
+     * the scheduler running the game timer, and any other delayed game tasks, on one thread
      */
-    protected Timer gameTimer = new Timer();
+    protected ScheduledExecutorService scheduledExecutorService;
     /**
-     * a scheduled executor service
+     * the pending task which loses a life when the timer runs out
      */
-    protected ScheduledExecutorService scheduledExecutorService;
+    protected volatile ScheduledFuture<?> gameLoopFuture;
+    /**
+     * the thread which runs the game, and the only one allowed to change its state
+     */
+    private volatile Thread gameThread;
+    /**
+     * copy of the grid shown by the user interface, only changed on the JavaFX thread
+     */
+    protected final Grid displayGrid;
+    /**
+     * what has happened since the last update was published, only used on the game thread
+     */
+    private Update changes = new Update();
+    /**
+     * the latest update waiting to be shown by the user interface
+     */
+    private final AtomicReference<Update> published = new AtomicReference<>();
+    /**
+     * whether the JavaFX thread has been asked to show the published update
+     */
+    private final AtomicBoolean showScheduled = new AtomicBoolean(false);
 
 
     /**
@@ -100,12 +108,66 @@ public class Game {
      * @param rows number of rows
      */
     public Game(int cols, int rows) {
-        this.cols = cols;
-        this.rows = rows;
-        this.scheduledExecutorService= Executors.newSingleThreadScheduledExecutor();
+        this(cols, rows, new RandomPieceSource(System.nanoTime()));
+    }
+
+    /**
+     * Create a new game with the specified rows and columns, taking its pieces from the given source, for example to
+     * replay a recorded sequence.
+     *
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param pieceSource where new pieces come from
+     */
+    public Game(int cols, int rows, PieceSource pieceSource) {
+        super(cols, rows, pieceSource);
+        this.displayGrid = new Grid(cols, rows);
+        this.scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Game Loop");
+            // the game loop should never keep the application running once the window is closed
+            thread.setDaemon(true);
+            gameThread = thread;
+            return thread;
+        });
+    }
+
+    /**
+     * Get the copy of the grid shown by the user interface. It follows the game grid, but is only updated on the
+     * JavaFX thread, so it can be bound to the GameBoard.
+     *
+     * @return displayed grid
+     */
+    public Grid getDisplayGrid() {
+        return displayGrid;
+    }
 
-        //Create a new grid model to represent the game state
-        this.grid = new Grid(cols, rows);
+    /**
+     * Queue a command to run on the game thread. Once it has run, the changes it made are published to the user
+     * interface. Commands sent after the game has stopped are ignored.
+     *
+     * @param command the command
+     */
+    protected void execute(Runnable command) {
+        try {
+            scheduledExecutorService.execute(() -> {
+                try {
+                    command.run();
+                } catch (RuntimeException e) {
+                    logger.error("Game command failed", e);
+                }
+                publish();
+            });
+        } catch (RejectedExecutionException e) {
+            logger.info("Game has stopped, ignoring command");
+        }
+    }
+
+    /**
+     * Whether this is the game thread
+     * @return true if called from the game thread
+     */
+    protected boolean isGameThread() {
+        return Thread.currentThread() == gameThread;
     }
 
     /**
@@ -150,36 +212,51 @@ public class Game {
      */
     public void start() {
         logger.info("Start game");
-        initialiseGame();
-        if (this.gameLoopListener != null) {
-            this.gameLoopListener.gameLoop(this.getTimerDelay());
-        }
-        TimerTask task =
-                new TimerTask() {
+        execute(() -> {
+            initialiseGame();
+            resetGameLoop();
+        });
+    }
 
-                    public void run() {
-                        if (Game.this.lives.get() < 0) {
-                            Game.this.gameTimer.cancel();
-                        }
-                        gameLoop();
-                    }
-                };
+    /**
+     * Start counting down to losing a life again, using the timer delay for the current level
+     */
+    protected void resetGameLoop() {
+        ScheduledFuture<?> previous = gameLoopFuture;
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        if (scheduledExecutorService.isShutdown()) {
+            return;
+        }
+        int delay = getTimerDelay();
+        gameLoopFuture = scheduledExecutorService.schedule(this::gameLoop, delay, TimeUnit.MILLISECONDS);
+        changes.timerDelay = delay;
+    }
 
-        this.gameTimer.schedule(task, this.getTimerDelay(), this.getTimerDelay());
+    /**
+     * Get the time left before a life is lost
+     * @return remaining time in milliseconds, or 0 if the timer is not running
+     */
+    public long getTimeRemaining() {
+        ScheduledFuture<?> future = gameLoopFuture;
+        if (future == null || future.isDone()) {
+            return 0;
+        }
+        return Math.max(0, future.getDelay(TimeUnit.MILLISECONDS));
     }
 
     /**
      * Initialise a new game and set up anything that needs to be done at the start
      */
+    @Override
     public void initialiseGame() {
         logger.info("Initialising game");
-        // When the game is initialised, spawn a new GamePiece and set it as the currentPiece
-        followingPiece = spawnPiece();
-        nextPiece();
+        super.initialiseGame();
     }
 
     /**
-     * Handle what should happen when a particular block is clicked
+     * Handle what should happen when a particular block is clicked. The piece is placed on the game thread.
      *
      * @param gameBlock the block that was clicked
      */
@@ -187,168 +264,131 @@ public class Game {
         //Get the position of this block
         int x = gameBlock.getX();
         int y = gameBlock.getY();
+        execute(() -> placeClicked(x, y));
+    }
 
-        // I don't need to change the value of blocks so the following code is useless
-/*
-        //Get the new value for this block
-        int previousValue = grid.get(x,y);
-        int newValue = previousValue + 1;
-        // Inspect if newValue exceeds the number of available blocks in the game, if yes, set the value to 0 to ensure the number of blocks stays within an effective range
-        if (newValue  > GamePiece.PIECES) {
-            newValue = 0;
-        }
-
-        //Update the grid with the new value
-        grid.set(x,y,newValue);
-*/
-        // judge whether the piece can be played
-        if (grid.canPlayPiece(currentPiece, x - 1, y - 1)) {
+    /**
+     * Place the current piece where the player clicked, on the game thread
+     *
+     * @param x column
+     * @param y row
+     */
+    protected void placeClicked(int x, int y) {
+        // place the piece if it can be played
+        if (place(x, y)) {
             Multimedia.playDocumentMusic("place.wav");
-            grid.playPiece(currentPiece, x, y);
-            if (gameTimer != null) {
-                gameTimer.cancel();
-            }
-            gameTimer = new Timer("new timer");
-            logger.info("Created a new timer");
-            nextPiece();
-            afterPiece();
-            TimerTask task =
-                    new TimerTask() {
-                        public void run() {
-                            gameLoop();
-                        }
-                    };
-            if (gameLoopListener != null) {
-                gameLoopListener.gameLoop(getTimerDelay());
-            }
-            gameTimer.schedule(task, getTimerDelay(), getTimerDelay());
+            resetGameLoop();
         } else {
             Multimedia.playDocumentMusic("fail.wav");
-            multiplier.set(1);
         }
     }
 
     /**
-     * set on line cleared listener
-     * @param lineClearedListener a listener for line cleared
+     * Rotate the current piece, on the game thread
+     * @param rotations number of rotations
      */
-    public void setLineClearedListener(LineClearedListener lineClearedListener) {
-        this.lineClearedListener = lineClearedListener;
+    @Override
+    public void rotateCurrentPiece(int rotations) {
+        execute(() -> {
+            super.rotateCurrentPiece(rotations);
+            pieceChanged();
+        });
     }
 
     /**
-     * set on actions after a piece is placed
+     * Swap the current and following pieces, on the game thread
      */
-    public void afterPiece() {
-        int linesToBeCleaned = 0;
-        // record the coordinates of blocks needed to be cleaned
-        HashSet<GameBlockCoordinate> blocksToBeCleaned = new HashSet<>();
+    @Override
+    public void swapCurrentPiece() {
+        execute(() -> {
+            super.swapCurrentPiece();
+            pieceChanged();
+        });
+    }
 
-        for (int i = 0; i < cols; i++) {
-            // record the number of blocks in the current column
-            int countCols = 0;
-            for (int j = 0; j < rows; j++) {
-                // if the value of the current block is 0, it means the block is empty, finish iterating
-                if (grid.get(i, j) == 0) break;
-                countCols += 1;
-            }
-            // means the current column is full
-            if (countCols == rows) {
-                linesToBeCleaned += 1;
-                for (int j = 0; j < rows; j++) {
-                    GameBlockCoordinate currentCoor = new GameBlockCoordinate(i, j);
-                    // add the coordinate pf the current block to blocksToBeCleaned
-                    blocksToBeCleaned.add(currentCoor);
-                }
-            }
-        }
-        for (int j = 0; j < rows; j++) {
-            // record the number of blocks in the current row
-            int countRows = 0;
-            for (int i = 0; i < cols; i++) {
-                // if the value of the current block is 0, it means the block is empty, finish iterating
-                if (grid.get(i, j) == 0) break;
-                countRows += 1;
-            }
-            // means the current row is full
-            if (countRows == cols) {
-                linesToBeCleaned += 1;
-                for (int i = 0; i < cols; i++) {
-                    GameBlockCoordinate currentCoor = new GameBlockCoordinate(i, j);
-                    // add the coordinate pf the current block to blocksToBeCleaned
-                    blocksToBeCleaned.add(currentCoor);
-                }
-            }
-        }
-        // if there are lines to be cleared
-        if (linesToBeCleaned != 0) {
-            // clean the blocks
-            for (GameBlockCoordinate block : blocksToBeCleaned) {
-                grid.set(block.getX(), block.getY(), 0);
-            }
-            // add scores
-            score(linesToBeCleaned, blocksToBeCleaned.size());
-            // update the multiplier of the current block
-            this.multiplier.set(this.multiplier.add(1).get());
-            if (lineClearedListener != null) {
-                lineClearedListener.lineCleared(blocksToBeCleaned);
-                logger.info("Cleaned lines");
-            }
-        } else {
-            // reset multiplier
-            multiplier.set(1);
-        }
+    /**
+     * set on line cleared listener
+     * @param lineClearedListener a listener for line cleared
+     */
+    public void setLineClearedListener(LineClearedListener lineClearedListener) {
+        this.lineClearedListener = lineClearedListener;
     }
 
     /**
-     * Get the grid model inside this game representing the game state of the board
-     *
-     * @return game grid model
+     * Tell the line cleared listener which lines were cleared
+     * @param rows the rows which were cleared
+     * @param cols the columns which were cleared
      */
-    public Grid getGrid() {
-        return grid;
+    @Override
+    protected void linesCleared(long rows, long cols) {
+        changes.clearedRows |= rows;
+        changes.clearedCols |= cols;
+        logger.info("Cleaned lines");
     }
 
     /**
-     * Get the number of columns in this game
-     *
-     * @return number of columns
+     * Record that the current or following piece has changed, so the user interface shows the new pieces
      */
-    public int getCols() {
-        return cols;
+    protected void pieceChanged() {
+        changes.pieceChanged = true;
     }
 
     /**
-     * Get the number of rows in this game
-     *
-     * @return number of rows
+     * Publish the state of the game and what has happened since the last update to the user interface. Called on the
+     * game thread after every command.
      */
-    public int getRows() {
-        return rows;
+    protected void publish() {
+        Update update = changes;
+        changes = new Update();
+        update.capture(this);
+
+        // take back an update the user interface has not got to yet and fold it into this one
+        Update unshown = published.getAndSet(null);
+        if (unshown != null) {
+            update.mergeEarlier(unshown);
+        }
+        published.set(update);
+        if (showScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::show);
+        }
     }
 
     /**
-     * Create a new random GamePiece
-     *
-     * @return a GamePiece
+     * Show the latest published update, on the JavaFX thread
      */
-    public GamePiece spawnPiece() {
-        Random random = new Random();
-        // set the bound because the max value of the piece is 15
-        GamePiece gamePiece = GamePiece.createPiece(random.nextInt(15));
-        return gamePiece;
+    private void show() {
+        showScheduled.set(false);
+        Update update = published.getAndSet(null);
+        if (update == null) {
+            return;
+        }
+        score.set(update.score);
+        level.set(update.level);
+        lives.set(update.lives);
+        multiplier.set(update.multiplier);
+        displayGrid.setValues(update.blocks);
+
+        if (update.pieceChanged && nextPieceListener != null && update.currentPiece != null) {
+            nextPieceListener.nextPiece(update.currentPiece, update.followingPiece);
+        }
+        if ((update.clearedRows | update.clearedCols) != 0 && lineClearedListener != null) {
+            lineClearedListener.lineCleared(update.clearedRows, update.clearedCols);
+        }
+        if (update.timerDelay >= 0 && gameLoopListener != null) {
+            gameLoopListener.gameLoop(update.timerDelay);
+        }
+        if (update.over && gameOverListener != null) {
+            gameOverListener.gameOver(this);
+        }
     }
 
     /**
      * Replace the current piece with a new piece
      */
+    @Override
     public void nextPiece() {
-        currentPiece = followingPiece;
-        followingPiece = spawnPiece();
-        // move the following piece to the current piece, and then replace the following piece
-        if (this.nextPieceListener != null) {
-            this.nextPieceListener.nextPiece(this.currentPiece, this.followingPiece);
-        }
+        super.nextPiece();
+        pieceChanged();
     }
 
     /**
@@ -357,15 +397,14 @@ public class Game {
      * @param blocks blocks need to be cleaned
      * @return score
      */
+    @Override
     public int score(int lines, int blocks) {
-        int scoreGained = lines * blocks * 10 * this.multiplier.get();
-        this.score.set(score.get() + scoreGained);
-        int level = this.score.get() / 1000;
-        if (this.level.get() != level) {
-            this.level.set(level);
+        int previousLevel = getLevel();
+        super.score(lines, blocks);
+        if (getLevel() != previousLevel) {
             multimedia.playDocumentMusic("level.wav");
         }
-        return score.get();
+        return getScore();
     }
 
     /**
@@ -376,39 +415,6 @@ public class Game {
         this.nextPieceListener = nextPieceListener;
     }
 
-    /** get following piece
-     *
-     * @return following piece
-     */
-    public GamePiece getNewPiece() {
-        return this.followingPiece;
-    }
-
-    /**
-     * get current piece
-     * @return current piece
-     */
-    public GamePiece getCurrentPiece() {
-        return this.currentPiece;
-    }
-
-    /**
-     * rotate current piece
-     * @param rotations rotations
-     */
-    public void rotateCurrentPiece(int rotations) {
-        currentPiece.rotate();
-    }
-
-    /**
-     * swap the current and following pieces
-     */
-    public void swapCurrentPiece() {
-        GamePiece gamePiece = followingPiece;
-        followingPiece = currentPiece;
-        currentPiece = gamePiece;
-    }
-
     /**
      * set on line cleared listener
      * @param lineClearedListener listener for clearing lines
@@ -418,41 +424,28 @@ public class Game {
     }
 
     /**
-     * make the timeline shorter when the level goes higher
-     * @return delay
-     */
-    public int getTimerDelay() {
-        int delay = 12000 - (500 * level.get());
-        if (delay < 2500) {
-            delay = 2500;
-        }
-        return delay;
-    }
-
-    /**
-     * set the actions when losing lives
+     * set the actions when losing lives, on the game thread when the timer runs out
      */
     public void gameLoop() {
-        if (lives.get() == 0) {
-            gameOver();
-        } else {
-            lives.set(lives.get() - 1);
+        tick();
+        if (!isGameOver()) {
             multimedia.playDocumentMusic("lifelose.wav");
-            multiplier.set(1);
-            nextPiece();
-            if (gameLoopListener != null) {
-                gameLoopListener.gameLoop(getTimerDelay());
-            }
+            resetGameLoop();
         }
+        publish();
     }
 
     /**
-     * game over
+     * game over. When called from the user interface the game is ended on the game thread.
      */
+    @Override
     public void gameOver() {
-        if (gameOverListener != null) {
-            Platform.runLater(() -> gameOverListener.gameOver(this));
+        if (!isGameThread()) {
+            execute(this::gameOver);
+            return;
         }
+        super.gameOver();
+        changes.over = true;
         this.stop();
         logger.info("Game over");
     }
@@ -469,7 +462,10 @@ public class Game {
      * stop game timer
      */
     public void stop() {
-        gameTimer.cancel();
+        ScheduledFuture<?> future = gameLoopFuture;
+        if (future != null) {
+            future.cancel(false);
+        }
         scheduledExecutorService.shutdownNow();
     }
 
@@ -481,4 +477,74 @@ public class Game {
         this.gameLoopListener = gameLoopListener;
 
     }
+
+    /**
+     * A snapshot of the game published to the user interface, along with what happened since the last one
+     */
+    private static class Update {
+
+        /**
+         * score, level, lives and multiplier
+         */
+        private int score, level, lives, multiplier;
+
+        /**
+         * current and following pieces
+         */
+        private GamePiece currentPiece, followingPiece;
+
+        /**
+         * value of every block, row by row
+         */
+        private byte[] blocks;
+
+        /**
+         * whether the pieces have changed
+         */
+        private boolean pieceChanged;
+
+        /**
+         * rows and columns cleared
+         */
+        private long clearedRows, clearedCols;
+
+        /**
+         * the delay the timer was restarted with, or -1 if it was not
+         */
+        private int timerDelay = -1;
+
+        /**
+         * whether the game ended
+         */
+        private boolean over;
+
+        /**
+         * Take a snapshot of the state of a game
+         * @param game the game
+         */
+        private void capture(Game game) {
+            score = game.getScore();
+            level = game.getLevel();
+            lives = game.getLives();
+            multiplier = game.getMultiplier();
+            currentPiece = game.currentPiece;
+            followingPiece = game.followingPiece;
+            blocks = new byte[game.getCols() * game.getRows()];
+            game.grid.copyValues(blocks);
+        }
+
+        /**
+         * Add the events of an earlier update which was never shown. The snapshot of this update is newer, so it is kept.
+         * @param earlier the earlier update
+         */
+        private void mergeEarlier(Update earlier) {
+            pieceChanged |= earlier.pieceChanged;
+            clearedRows |= earlier.clearedRows;
+            clearedCols |= earlier.clearedCols;
+            if (timerDelay < 0) {
+                timerDelay = earlier.timerDelay;
+            }
+            over |= earlier.over;
+        }
+    }
 }
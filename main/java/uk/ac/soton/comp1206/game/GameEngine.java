@@ -0,0 +1,337 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * The GameEngine holds the rules and state of a game of TetrECS without anything from the user interface. There are no
+ * properties, sounds or timers in here, so it can be driven from any thread by calling place, rotateCurrentPiece,
+ * swapCurrentPiece and tick directly.
+ *
+ * Pieces come from a PieceSource. Two engines with sources giving the same sequence (for example, random sources with the
+ * same seed) play out the same way when given the same moves.
+ *
+ * The Game class builds on the engine to link it to the user interface.
+ */
+public class GameEngine {
+
+    /**
+     * Number of rows
+     */
+    protected final int rows;
+
+    /**
+     * Number of columns
+     */
+    protected final int cols;
+
+    /**
+     * The grid model linked to the game
+     */
+    protected final Grid grid;
+
+    /**
+     * current piece
+     */
+    protected GamePiece currentPiece;
+
+    /**
+     * following piece
+     */
+    protected GamePiece followingPiece;
+
+    /**
+     * where new pieces come from
+     */
+    private final PieceSource pieceSource;
+
+    /**
+     * current score
+     */
+    private int score = 0;
+
+    /**
+     * current level
+     */
+    private int level = 0;
+
+    /**
+     * current left lives
+     */
+    private int lives = 3;
+
+    /**
+     * current game multiplier
+     */
+    private int multiplier = 1;
+
+    /**
+     * number of pieces placed on the grid
+     */
+    private int piecesPlaced = 0;
+
+    /**
+     * whether the game has ended
+     */
+    private boolean over = false;
+
+    /**
+     * Create a new game engine with the specified rows and columns. Creates a corresponding grid model.
+     *
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param seed seed for a random piece source
+     */
+    public GameEngine(int cols, int rows, long seed) {
+        this(cols, rows, new RandomPieceSource(seed));
+    }
+
+    /**
+     * Create a new game engine with the specified rows and columns, taking its pieces from the given source.
+     *
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param pieceSource where new pieces come from
+     */
+    public GameEngine(int cols, int rows, PieceSource pieceSource) {
+        this.cols = cols;
+        this.rows = rows;
+        this.pieceSource = pieceSource;
+
+        //Create a new grid model to represent the game state
+        this.grid = new Grid(cols, rows);
+    }
+
+    /**
+     * Initialise a new game and set up anything that needs to be done at the start
+     */
+    public void initialiseGame() {
+        // When the game is initialised, spawn a new GamePiece and set it as the currentPiece
+        followingPiece = spawnPiece();
+        nextPiece();
+    }
+
+    /**
+     * Place the current piece centred on the given block
+     *
+     * @param x column
+     * @param y row
+     * @return whether the piece could be placed
+     */
+    public boolean place(int x, int y) {
+        // judge whether the piece can be played
+        if (!grid.canPlayPiece(currentPiece, x - 1, y - 1)) {
+            multiplier = 1;
+            return false;
+        }
+        grid.playPiece(currentPiece, x, y);
+        piecesPlaced++;
+        nextPiece();
+        afterPiece();
+        return true;
+    }
+
+    /**
+     * set on actions after a piece is placed
+     */
+    public void afterPiece() {
+        // the grid keeps track of which lines are full as blocks are placed, so nothing needs to be scanned
+        long fullRows = grid.getFullRows();
+        long fullCols = grid.getFullCols();
+        int clearedRows = Long.bitCount(fullRows);
+        int clearedCols = Long.bitCount(fullCols);
+        int linesToBeCleaned = clearedRows + clearedCols;
+
+        // if there are lines to be cleared
+        if (linesToBeCleaned != 0) {
+            // blocks where a cleared row crosses a cleared column are only counted once
+            int blocksToBeCleaned = clearedRows * cols + clearedCols * rows - clearedRows * clearedCols;
+            // clean the blocks
+            grid.clearLines(fullRows, fullCols);
+            // add scores
+            score(linesToBeCleaned, blocksToBeCleaned);
+            // update the multiplier of the current block
+            multiplier++;
+            linesCleared(fullRows, fullCols);
+        } else {
+            // reset multiplier
+            multiplier = 1;
+        }
+    }
+
+    /**
+     * Called after lines have been cleared from the grid. Does nothing here, for the user interface to build on.
+     * @param rows the rows which were cleared, bit y is set for row y
+     * @param cols the columns which were cleared, bit x is set for column x
+     */
+    protected void linesCleared(long rows, long cols) {
+    }
+
+    /**
+     * Take a new GamePiece from the piece source
+     *
+     * @return a GamePiece
+     */
+    public GamePiece spawnPiece() {
+        return pieceSource.next();
+    }
+
+    /**
+     * Replace the current piece with a new piece
+     */
+    public void nextPiece() {
+        // move the following piece to the current piece, and then replace the following piece
+        currentPiece = followingPiece;
+        followingPiece = spawnPiece();
+    }
+
+    /**
+     * add score after cleaning pieces
+     * @param lines lines need to be cleaned
+     * @param blocks blocks need to be cleaned
+     * @return score
+     */
+    public int score(int lines, int blocks) {
+        score += lines * blocks * 10 * multiplier;
+        level = score / 1000;
+        return score;
+    }
+
+    /**
+     * rotate current piece
+     * @param rotations rotations
+     */
+    public void rotateCurrentPiece(int rotations) {
+        currentPiece = currentPiece.rotate(rotations);
+    }
+
+    /**
+     * swap the current and following pieces
+     */
+    public void swapCurrentPiece() {
+        GamePiece gamePiece = followingPiece;
+        followingPiece = currentPiece;
+        currentPiece = gamePiece;
+    }
+
+    /**
+     * The timer ran out before a piece was placed. Lose a life and move on to the next piece, or end the game if there
+     * are no lives left.
+     */
+    public void tick() {
+        if (lives == 0) {
+            gameOver();
+        } else {
+            lives--;
+            multiplier = 1;
+            nextPiece();
+        }
+    }
+
+    /**
+     * game over
+     */
+    public void gameOver() {
+        over = true;
+    }
+
+    /**
+     * make the timeline shorter when the level goes higher
+     * @return delay
+     */
+    public int getTimerDelay() {
+        int delay = 12000 - (500 * level);
+        if (delay < 2500) {
+            delay = 2500;
+        }
+        return delay;
+    }
+
+    /**
+     * Get the grid model inside this game representing the game state of the board
+     *
+     * @return game grid model
+     */
+    public Grid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Get the number of columns in this game
+     *
+     * @return number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Get the number of rows in this game
+     *
+     * @return number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /** get following piece
+     *
+     * @return following piece
+     */
+    public GamePiece getNewPiece() {
+        return this.followingPiece;
+    }
+
+    /**
+     * get current piece
+     * @return current piece
+     */
+    public GamePiece getCurrentPiece() {
+        return this.currentPiece;
+    }
+
+    /**
+     * get current score
+     * @return score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * get current level
+     * @return level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * get current lives
+     * @return lives
+     */
+    public int getLives() {
+        return lives;
+    }
+
+    /**
+     * get current multiplier
+     * @return multiplier
+     */
+    public int getMultiplier() {
+        return multiplier;
+    }
+
+    /**
+     * get the number of pieces placed so far
+     * @return pieces placed
+     */
+    public int getPiecesPlaced() {
+        return piecesPlaced;
+    }
+
+    /**
+     * whether the game has ended
+     * @return true once the game is over
+     */
+    public boolean isGameOver() {
+        return over;
+    }
+}
@@ -5,6 +5,9 @@ package uk.ac.soton.comp1206.game;
  *
  * The GamePiece class also contains a factory for producing a GamePiece of a particular shape, as specified by it's
  * number.
+ *
+ * A GamePiece never changes. Every piece in every rotation is built once, when the class is loaded, and the factory and
+ * rotate hand out those shared instances, so spawning and rotating a piece does not create anything.
  */
 public class GamePiece {
 
@@ -13,10 +16,45 @@ public class GamePiece {
      */
     public static final int PIECES = 15;
 
+    /**
+     * The number of different rotations of a piece
+     */
+    public static final int ROTATIONS = 4;
+
+    /**
+     * Every piece in every rotation, indexed by piece number and then rotation
+     */
+    private static final GamePiece[][] PIECE_TABLE = new GamePiece[PIECES][ROTATIONS];
+
+    static {
+        for(int piece = 0; piece < PIECES; piece++) {
+            PIECE_TABLE[piece][0] = buildPiece(piece);
+            for(int rotation = 1; rotation < ROTATIONS; rotation++) {
+                PIECE_TABLE[piece][rotation] = PIECE_TABLE[piece][rotation - 1].buildRotation();
+            }
+        }
+    }
+
     /**
      * The 2D grid representation of the shape of this piece
      */
-    private int[][] blocks;
+    private final int[][] blocks;
+
+    /**
+     * The number of quarter turns this piece has been rotated from its starting shape
+     */
+    private final int rotation;
+
+    /**
+     * The shape of the current rotation as a bit mask. Bit (y * 3 + x) is set when block x, y of the 3x3 grid is filled,
+     * so each group of three bits is one row of the piece.
+     */
+    private final int mask;
+
+    /**
+     * The first and last filled column and row of the current rotation, used to check the piece stays on the board
+     */
+    private final int minX, maxX, minY, maxY;
 
     /**
      * The value of this piece
@@ -29,11 +67,34 @@ public class GamePiece {
     private final String name;
 
     /**
-     * Create a new GamePiece of the specified piece number
+     * Get the GamePiece of the specified piece number
      * @param piece piece number
-     * @return the created GamePiece
+     * @return the GamePiece
      */
     public static GamePiece createPiece(int piece) {
+        return createPiece(piece, 0);
+    }
+
+    /**
+     * Get the GamePiece of the specified piece number and rotation
+     * @param piece piece number
+     * @param rotation number of times to rotate
+     * @return the GamePiece
+     */
+    public static GamePiece createPiece(int piece, int rotation) {
+        if(piece < 0 || piece >= PIECES) {
+            //Not a valid piece number
+            throw new IndexOutOfBoundsException("No such piece: " + piece);
+        }
+        return PIECE_TABLE[piece][Math.floorMod(rotation, ROTATIONS)];
+    }
+
+    /**
+     * Build the starting shape of the specified piece number. Only used to fill the piece table.
+     * @param piece piece number
+     * @return the created GamePiece
+     */
+    private static GamePiece buildPiece(int piece) {
         switch (piece) {
             // 第一組表示第一行從左往右哪些格子有格子，哪些格子是空的，第二組表示第二行，第三組表示第三行
             //Line
@@ -131,19 +192,6 @@ public class GamePiece {
         throw new IndexOutOfBoundsException("No such piece: " + piece);
     }
 
-    /**
-     * Create a new GamePiece of the specified piece number and rotation
-     * @param piece piece number
-     * @param rotation number of times to rotate
-     * @return the created GamePiece
-     */
-    public static GamePiece createPiece(int piece, int rotation) {
-        var newPiece = createPiece(piece);
-
-        newPiece.rotate(rotation);
-        return newPiece;
-    }
-
     /**
      * Create a new GamePiece with the given name, block makeup and value. Should not be called directly, only via the
      * factory.
@@ -152,9 +200,7 @@ public class GamePiece {
      * @param value the value of this piece
      */
     private GamePiece(String name, int[][] blocks, int value) {
-        this.name = name;
-        this.blocks = blocks;
-        this.value = value;
+        this(name, blocks, value, 0);
 
         //Use the shape of the block to create a grid with either 0 (empty) or the value of this shape for each block.
         for(int x = 0; x < blocks.length; x++) {
@@ -165,6 +211,38 @@ public class GamePiece {
         }
     }
 
+    /**
+     * Create a GamePiece with the given name, block makeup, value and rotation, working out its bit mask and filled
+     * extent from the block makeup
+     * @param name name of the piece
+     * @param blocks block makeup of the piece
+     * @param value the value of this piece
+     * @param rotation number of quarter turns from the starting shape
+     */
+    private GamePiece(String name, int[][] blocks, int value, int rotation) {
+        this.name = name;
+        this.blocks = blocks;
+        this.value = value;
+        this.rotation = rotation;
+
+        int newMask = 0;
+        for(int x = 0; x < 3; x++) {
+            for(int y = 0; y < 3; y++) {
+                if(blocks[x][y] != 0) {
+                    newMask |= 1 << (y * 3 + x);
+                }
+            }
+        }
+        this.mask = newMask;
+
+        //Fold the rows together to find the columns in use, and check each row to find the rows in use
+        int columns = (newMask | newMask >>> 3 | newMask >>> 6) & 0b111;
+        minX = Integer.numberOfTrailingZeros(columns);
+        maxX = 31 - Integer.numberOfLeadingZeros(columns);
+        minY = (newMask & 0b111) != 0 ? 0 : (newMask & 0b111000) != 0 ? 1 : 2;
+        maxY = (newMask & 0b111000000) != 0 ? 2 : (newMask & 0b111000) != 0 ? 1 : 0;
+    }
+
     /**
      * Get the value of this piece
      * @return piece value
@@ -174,27 +252,96 @@ public class GamePiece {
     }
 
     /**
-     * Get the block makeup of this piece
+     * Get the number of quarter turns this piece has been rotated from its starting shape
+     * @return rotation (0 to 3)
+     */
+    public int getRotation() {
+        return rotation;
+    }
+
+    /**
+     * Get the block makeup of this piece. Pieces are shared, so this is a copy, and changing it does not change the piece.
      * @return 2D grid of the blocks representing the piece shape
      */
     public int[][] getBlocks() {
-        return blocks;
+        int[][] copy = new int[blocks.length][];
+        for (int x = 0; x < blocks.length; x++) {
+            copy[x] = blocks[x].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Get the shape of this piece as a bit mask, where bit (y * 3 + x) is set when block x, y is filled
+     * @return the piece mask
+     */
+    public int getMask() {
+        return mask;
+    }
+
+    /**
+     * Get one row of this piece as a bit mask, where bit x is set when block x of the row is filled
+     * @param y row of the piece (0 to 2)
+     * @return the row mask
+     */
+    public int getRowMask(int y) {
+        return (mask >>> (y * 3)) & 0b111;
+    }
+
+    /**
+     * Get the first filled column of this piece
+     * @return column (0 to 2)
+     */
+    public int getMinX() {
+        return minX;
     }
 
     /**
-     * Rotate this piece the given number of rotations
+     * Get the last filled column of this piece
+     * @return column (0 to 2)
+     */
+    public int getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * Get the first filled row of this piece
+     * @return row (0 to 2)
+     */
+    public int getMinY() {
+        return minY;
+    }
+
+    /**
+     * Get the last filled row of this piece
+     * @return row (0 to 2)
+     */
+    public int getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * Get this piece rotated the given number of rotations
      * @param rotations number of rotations
+     * @return the rotated piece
      */
-    public void rotate(int rotations) {
-        for(int rotated = 0; rotated < rotations; rotated ++) {
-            rotate();
-        }
+    public GamePiece rotate(int rotations) {
+        return PIECE_TABLE[value - 1][(rotation + rotations) & (ROTATIONS - 1)];
+    }
+
+    /**
+     * Get this piece rotated exactly once
+     * @return the rotated piece
+     */
+    public GamePiece rotate() {
+        return rotate(1);
     }
 
     /**
-     * Rotate this piece exactly once by rotating it's 3x3 grid
+     * Build the next rotation of this piece by rotating it's 3x3 grid. Only used to fill the piece table.
+     * @return the rotated piece
      */
-    public void rotate() {
+    private GamePiece buildRotation() {
         int[][] rotated = new int[blocks.length][blocks[0].length];
 
         rotated[2][0] = blocks[0][0];
@@ -209,7 +356,7 @@ public class GamePiece {
         rotated[1][2] = blocks[2][1];
         rotated[0][2] = blocks[2][2];
 
-        blocks = rotated;
+        return new GamePiece(name, rotated, value, rotation + 1);
     }
 
 
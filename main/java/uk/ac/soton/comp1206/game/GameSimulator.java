@@ -0,0 +1,368 @@
+package uk.ac.soton.comp1206.game;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.IntSummaryStatistics;
+import java.util.LongSummaryStatistics;
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+
+/**
+ * The GameSimulator plays a large number of games on GameEngines, without any user interface, spread over every core.
+ * It reports statistics on the score reached and how long each game survived, so changes to the scoring and timer
+ * rules can be tried out without playing by hand.
+ *
+ * Each simulated player places the piece which completes the most lines, trying both the current and following piece
+ * in every rotation. The time it takes to think about each move is random, and if that is longer than the timer delay
+ * the timer runs out and a life is lost, the same as in the real game.
+ *
+ * Every game is given its own seed (the base seed plus the game number), so a run can be repeated exactly.
+ */
+public class GameSimulator {
+
+    private static final Logger logger = LogManager.getLogger(GameSimulator.class);
+
+    /**
+     * Number of columns of the simulated games
+     */
+    private final int cols;
+
+    /**
+     * Number of rows of the simulated games
+     */
+    private final int rows;
+
+    /**
+     * The average time in milliseconds the simulated player takes to make a move
+     */
+    private final double thinkTime;
+
+    /**
+     * The number of pieces after which a game is stopped, so a player that never loses does not run forever
+     */
+    private final int maxPieces;
+
+    /**
+     * Create a new simulator
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param thinkTime average time in milliseconds the player takes to make a move
+     * @param maxPieces number of pieces after which a game is stopped
+     */
+    public GameSimulator(int cols, int rows, double thinkTime, int maxPieces) {
+        this.cols = cols;
+        this.rows = rows;
+        this.thinkTime = thinkTime;
+        this.maxPieces = maxPieces;
+    }
+
+    /**
+     * Run the simulator from the command line
+     * @param args number of games, base seed, average think time in milliseconds and board size, all optional
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        double thinkTime = args.length > 2 ? Double.parseDouble(args[2]) : 3000;
+        int size = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        logger.info("Simulating {} games on a {} x {} board with seed {} on {} cores",
+                games, size, size, seed, Runtime.getRuntime().availableProcessors());
+        long start = System.nanoTime();
+        Results results = new GameSimulator(size, size, thinkTime, 10_000).run(games, seed);
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        logger.info("Finished in {} ms", elapsed);
+        logger.info(results);
+    }
+
+    /**
+     * Play the given number of games in parallel
+     * @param games number of games
+     * @param seed base seed, game n uses seed + n
+     * @return the combined statistics of every game
+     */
+    public Results run(int games, long seed) {
+        Tally tally = LongStream.range(0, games)
+                .parallel()
+                .collect(Tally::new, (results, game) -> play(results, seed + game), Tally::combine);
+        return new Results(tally);
+    }
+
+    /**
+     * Play a single game until it is over or reaches the piece limit, adding the outcome to the results
+     * @param results tally to record the game in
+     * @param seed seed for this game
+     */
+    private void play(Tally results, long seed) {
+        GameEngine engine = new GameEngine(cols, rows, seed);
+        SplittableRandom thinking = new SplittableRandom(~seed);
+        engine.initialiseGame();
+
+        long time = 0;
+        while (!engine.isGameOver() && engine.getPiecesPlaced() < maxPieces) {
+            int delay = engine.getTimerDelay();
+            // think times are exponentially distributed around the average
+            double think = -thinkTime * Math.log(1 - thinking.nextDouble());
+            if (think < delay && placeBest(engine)) {
+                time += (long) think;
+            } else {
+                // too slow, or nowhere to put either piece, so the timer runs out
+                time += delay;
+                engine.tick();
+            }
+        }
+        results.add(engine, time);
+    }
+
+    /**
+     * Place whichever piece and rotation completes the most lines, swapping and rotating as needed
+     * @param engine the game
+     * @return false if neither piece fits anywhere
+     */
+    private static boolean placeBest(GameEngine engine) {
+        Grid grid = engine.getGrid();
+        int bestLines = -1;
+        int bestX = 0, bestY = 0, bestRotation = 0;
+        boolean bestSwap = false;
+
+        for (int swap = 0; swap < 2; swap++) {
+            GamePiece piece = swap == 0 ? engine.getCurrentPiece() : engine.getNewPiece();
+            for (int rotation = 0; rotation < GamePiece.ROTATIONS; rotation++) {
+                GamePiece rotated = piece.rotate(rotation);
+                for (int y = 0; y < grid.getRows(); y++) {
+                    for (int x = 0; x < grid.getCols(); x++) {
+                        if (!grid.canPlayPiece(rotated, x - 1, y - 1)) continue;
+                        int lines = linesCompleted(grid, rotated, x - 1, y - 1);
+                        if (lines > bestLines) {
+                            bestLines = lines;
+                            bestX = x;
+                            bestY = y;
+                            bestRotation = rotation;
+                            bestSwap = swap == 1;
+                        }
+                    }
+                }
+            }
+        }
+
+        if (bestLines < 0) {
+            return false;
+        }
+        if (bestSwap) {
+            engine.swapCurrentPiece();
+        }
+        engine.rotateCurrentPiece(bestRotation);
+        return engine.place(bestX, bestY);
+    }
+
+    /**
+     * Count the lines a piece would complete if it was played with its top left corner at x, y
+     * @param grid the grid
+     * @param piece the piece, which must fit at x, y
+     * @param x column of the top left of the piece
+     * @param y row of the top left of the piece
+     * @return number of rows and columns which would be full
+     */
+    private static int linesCompleted(Grid grid, GamePiece piece, int x, int y) {
+        long fullRow = grid.getCols() == Long.SIZE ? -1L : (1L << grid.getCols()) - 1;
+        int lines = 0;
+        for (int j = piece.getMinY(); j <= piece.getMaxY(); j++) {
+            long row = piece.getRowMask(j);
+            long shifted = x >= 0 ? row << x : row >>> -x;
+            if (row != 0 && (grid.getRowMask(y + j) | shifted) == fullRow) {
+                lines++;
+            }
+        }
+        for (int i = piece.getMinX(); i <= piece.getMaxX(); i++) {
+            // bits i, i + 3 and i + 6 of the mask are column i of the piece
+            int blocks = Integer.bitCount((piece.getMask() >>> i) & 0b001001001);
+            if (blocks != 0 && grid.getColCount(x + i) + blocks == grid.getRows()) {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * The statistics of a set of simulated games while they are being played
+     */
+    private static class Tally {
+
+        /**
+         * final scores
+         */
+        private final LongSummaryStatistics scores = new LongSummaryStatistics();
+
+        /**
+         * final levels
+         */
+        private final IntSummaryStatistics levels = new IntSummaryStatistics();
+
+        /**
+         * pieces placed in each game
+         */
+        private final IntSummaryStatistics pieces = new IntSummaryStatistics();
+
+        /**
+         * simulated milliseconds each game lasted
+         */
+        private final LongSummaryStatistics survival = new LongSummaryStatistics();
+
+        /**
+         * number of games stopped at the piece limit rather than lost
+         */
+        private long unfinished = 0;
+
+        /**
+         * Record a finished game
+         * @param engine the game
+         * @param time simulated milliseconds the game lasted
+         */
+        void add(GameEngine engine, long time) {
+            scores.accept(engine.getScore());
+            levels.accept(engine.getLevel());
+            pieces.accept(engine.getPiecesPlaced());
+            survival.accept(time);
+            if (!engine.isGameOver()) {
+                unfinished++;
+            }
+        }
+
+        /**
+         * Add the games of another tally to this one
+         * @param other other tally
+         */
+        void combine(Tally other) {
+            scores.combine(other.scores);
+            levels.combine(other.levels);
+            pieces.combine(other.pieces);
+            survival.combine(other.survival);
+            unfinished += other.unfinished;
+        }
+    }
+
+    /**
+     * The combined outcome of a set of simulated games, which does not change once the games are played
+     */
+    public static class Results {
+
+        /**
+         * final scores
+         */
+        private final LongSummaryStatistics scores;
+
+        /**
+         * final levels
+         */
+        private final IntSummaryStatistics levels;
+
+        /**
+         * pieces placed in each game
+         */
+        private final IntSummaryStatistics pieces;
+
+        /**
+         * simulated milliseconds each game lasted
+         */
+        private final LongSummaryStatistics survival;
+
+        /**
+         * number of games stopped at the piece limit rather than lost
+         */
+        private final long unfinished;
+
+        /**
+         * Create the results of a finished tally, which must not be added to afterwards
+         * @param tally the statistics of every game
+         */
+        private Results(Tally tally) {
+            this.scores = tally.scores;
+            this.levels = tally.levels;
+            this.pieces = tally.pieces;
+            this.survival = tally.survival;
+            this.unfinished = tally.unfinished;
+        }
+
+        /**
+         * get score statistics
+         * @return scores
+         */
+        public LongSummaryStatistics getScores() {
+            return copy(scores);
+        }
+
+        /**
+         * get level statistics
+         * @return levels
+         */
+        public IntSummaryStatistics getLevels() {
+            return copy(levels);
+        }
+
+        /**
+         * get statistics on pieces placed
+         * @return pieces
+         */
+        public IntSummaryStatistics getPieces() {
+            return copy(pieces);
+        }
+
+        /**
+         * get statistics on how long games lasted, in simulated milliseconds
+         * @return survival times
+         */
+        public LongSummaryStatistics getSurvival() {
+            return copy(survival);
+        }
+
+        /**
+         * get the number of games stopped at the piece limit
+         * @return unfinished games
+         */
+        public long getUnfinished() {
+            return unfinished;
+        }
+
+        /**
+         * Copy statistics, so the results can not be changed through them
+         * @param statistics the statistics
+         * @return a copy
+         */
+        private static LongSummaryStatistics copy(LongSummaryStatistics statistics) {
+            LongSummaryStatistics copy = new LongSummaryStatistics();
+            copy.combine(statistics);
+            return copy;
+        }
+
+        /**
+         * Copy statistics, so the results can not be changed through them
+         * @param statistics the statistics
+         * @return a copy
+         */
+        private static IntSummaryStatistics copy(IntSummaryStatistics statistics) {
+            IntSummaryStatistics copy = new IntSummaryStatistics();
+            copy.combine(statistics);
+            return copy;
+        }
+
+        /**
+         * Return a summary of the results
+         * @return summary
+         */
+        @Override
+        public String toString() {
+            return String.format("%d games (%d unfinished)%n"
+                            + "  score    avg %.1f  min %d  max %d%n"
+                            + "  level    avg %.2f  min %d  max %d%n"
+                            + "  pieces   avg %.1f  min %d  max %d%n"
+                            + "  survival avg %.1fs  min %.1fs  max %.1fs",
+                    scores.getCount(), unfinished,
+                    scores.getAverage(), scores.getMin(), scores.getMax(),
+                    levels.getAverage(), levels.getMin(), levels.getMax(),
+                    pieces.getAverage(), pieces.getMin(), pieces.getMax(),
+                    survival.getAverage() / 1000, survival.getMin() / 1000.0, survival.getMax() / 1000.0);
+        }
+    }
+}
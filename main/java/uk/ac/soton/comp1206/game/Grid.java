@@ -2,13 +2,23 @@ package uk.ac.soton.comp1206.game;
 
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
+import uk.ac.soton.comp1206.event.BlockChangedListener;
+
+import java.util.Arrays;
 
 /**
  * The Grid is a model which holds the state of a game board. It is made up of a set of Integer values arranged in a 2D
  * arrow, with rows and columns.
  *
- * Each value inside the Grid is an IntegerProperty can be bound to enable modification and display of the contents of
- * the grid.
+ * The values are held in primitive arrays: one long per row with a bit set for every filled cell, and a byte per cell
+ * with the colour value. These are the source of truth, so the model can be used without JavaFX (for simulations).
+ *
+ * The number of filled blocks in every row and column is counted as blocks are set, so full lines are known without
+ * scanning the grid.
+ *
+ * An IntegerProperty for a cell is only created when it is asked for with getGridProperty, so it can be bound to for
+ * display. Once created it is kept up to date by set. A board which draws the whole grid itself can instead listen for
+ * changed blocks with setOnBlockChanged.
  *
  * The Grid contains functions related to modifying the model, for example, placing a piece inside the grid.
  *
@@ -27,9 +37,44 @@ public class Grid {
     private final int rows;
 
     /**
-     * The grid is a 2D arrow with rows and columns of SimpleIntegerProperties.
+     * The occupancy of the grid, one long per row. Bit x of a row is set when the block in column x is not empty.
+     */
+    private final long[] occupied;
+
+    /**
+     * The value of every block in the grid, stored row by row (index y * cols + x)
+     */
+    private final byte[] values;
+
+    /**
+     * The number of filled blocks in each row
+     */
+    private final int[] rowCounts;
+
+    /**
+     * The number of filled blocks in each column
+     */
+    private final int[] colCounts;
+
+    /**
+     * The rows which are currently full, bit y is set when row y is full
+     */
+    private long fullRows;
+
+    /**
+     * The columns which are currently full, bit x is set when column x is full
+     */
+    private long fullCols;
+
+    /**
+     * The properties handed out for binding, created on demand. Null until the first property is asked for.
+     */
+    private SimpleIntegerProperty[][] view;
+
+    /**
+     * Told whenever a block is set, or null
      */
-    private final SimpleIntegerProperty[][] grid;
+    private BlockChangedListener blockChangedListener;
 
     /**
      * Create a new Grid with the specified number of columns and rows and initialise them
@@ -37,28 +82,35 @@ public class Grid {
      * @param rows number of rows
      */
     public Grid(int cols, int rows) {
+        //Each row is held in a single long and full lines are reported as a long, so at most 64 blocks each way
+        if(cols < 1 || cols > Long.SIZE || rows < 1 || rows > Long.SIZE) {
+            throw new IllegalArgumentException("Unsupported grid size: " + cols + " x " + rows);
+        }
         this.cols = cols;
         this.rows = rows;
 
-        //Create the grid itself
-        grid = new SimpleIntegerProperty[cols][rows];
-
-        //Add a SimpleIntegerProperty to every block in the grid
-        for(var y = 0; y < rows; y++) {
-            for(var x = 0; x < cols; x++) {
-                grid[x][y] = new SimpleIntegerProperty(0);
-            }
-        }
+        //Create the grid itself, every block starts empty
+        occupied = new long[rows];
+        values = new byte[cols * rows];
+        rowCounts = new int[rows];
+        colCounts = new int[cols];
     }
 
     /**
      * Get the Integer property contained inside the grid at a given row and column index. Can be used for binding.
+     * The property is created the first time it is asked for and then follows every change made with set.
      * @param x column
      * @param y row
      * @return the IntegerProperty at the given x and y in this grid
      */
     public IntegerProperty getGridProperty(int x, int y) {
-        return grid[x][y];
+        if(view == null) {
+            view = new SimpleIntegerProperty[cols][rows];
+        }
+        if(view[x][y] == null) {
+            view[x][y] = new SimpleIntegerProperty(get(x, y));
+        }
+        return view[x][y];
     }
 
     /**
@@ -68,23 +120,119 @@ public class Grid {
      * @param value the new value
      */
     public void set(int x, int y, int value) {
-        grid[x][y].set(value);
+        int index = y * cols + x;
+        boolean wasFilled = values[index] != 0;
+        values[index] = (byte) value;
+
+        //Only update the occupancy and line counts when the block changes between empty and filled
+        if(value != 0 && !wasFilled) {
+            occupied[y] |= 1L << x;
+            if(++rowCounts[y] == cols) {
+                fullRows |= 1L << y;
+            }
+            if(++colCounts[x] == rows) {
+                fullCols |= 1L << x;
+            }
+        } else if(value == 0 && wasFilled) {
+            occupied[y] &= ~(1L << x);
+            rowCounts[y]--;
+            colCounts[x]--;
+            fullRows &= ~(1L << y);
+            fullCols &= ~(1L << x);
+        }
+
+        //Keep any bound property in step with the model
+        if(view != null && view[x][y] != null) {
+            view[x][y].set(value);
+        }
+        if(blockChangedListener != null) {
+            blockChangedListener.blockChanged(x, y, value);
+        }
+    }
+
+    /**
+     * Set the listener told whenever a block is set. There is only one, which replaces any set before.
+     * @param listener the listener, or null to remove it
+     */
+    public void setOnBlockChanged(BlockChangedListener listener) {
+        this.blockChangedListener = listener;
     }
 
     /**
      * Get the value represented at the given x and y index within the grid
      * @param x column
      * @param y row
-     * @return the value
+     * @return the value, or -1 if there is no such block
      */
     public int get(int x, int y) {
-        try {
-            //Get the value held in the property at the x and y index provided
-            return grid[x][y].get();
-        } catch (ArrayIndexOutOfBoundsException e) {
+        if(x < 0 || x >= cols || y < 0 || y >= rows) {
             //No such index
             return -1;
         }
+        return values[y * cols + x];
+    }
+
+    /**
+     * Get the occupancy of a row as a bit mask, where bit x is set if the block in column x is not empty
+     * @param y row
+     * @return the occupied blocks of the row
+     */
+    public long getRowMask(int y) {
+        return occupied[y];
+    }
+
+    /**
+     * Get the number of filled blocks in a row
+     * @param y row
+     * @return filled blocks
+     */
+    public int getRowCount(int y) {
+        return rowCounts[y];
+    }
+
+    /**
+     * Get the number of filled blocks in a column
+     * @param x column
+     * @return filled blocks
+     */
+    public int getColCount(int x) {
+        return colCounts[x];
+    }
+
+    /**
+     * Get the rows which are currently full
+     * @return a mask with bit y set for every full row y
+     */
+    public long getFullRows() {
+        return fullRows;
+    }
+
+    /**
+     * Get the columns which are currently full
+     * @return a mask with bit x set for every full column x
+     */
+    public long getFullCols() {
+        return fullCols;
+    }
+
+    /**
+     * Empty every block in the given rows and columns
+     * @param rowMask the rows to clear, bit y for row y
+     * @param colMask the columns to clear, bit x for column x
+     */
+    public void clearLines(long rowMask, long colMask) {
+        for(long bits = rowMask; bits != 0; bits &= bits - 1) {
+            int y = Long.numberOfTrailingZeros(bits);
+            for(int x = 0; x < cols; x++) {
+                set(x, y, 0);
+            }
+        }
+        for(long bits = colMask; bits != 0; bits &= bits - 1) {
+            int x = Long.numberOfTrailingZeros(bits);
+            for(int y = 0; y < rows; y++) {
+                set(x, y, 0);
+            }
+        }
     }
 
     /**
@@ -114,20 +262,20 @@ public class Grid {
         if(gamePiece == null) {
             return false;
         }
-        int[][] blocks = gamePiece.getBlocks();
-        for (int i = 0; i < blocks.length; i++){
-            for (int j = 0; j < blocks[i].length; j++){
-                // If the coordinate of the block is 0, it means it is empty, then continue iterating
-                if (blocks[i][j] == 0) continue;
-                // If the coordinate of the block is not zero, it means it is not empty, you can't put the piece here
-                if (blocks[i][j] != 0){
-                    if (get(i + x,j + y) != 0){
-                        return false;
-                    }
-                }
+        // The filled part of the piece has to stay inside the grid
+        if(x + gamePiece.getMinX() < 0 || x + gamePiece.getMaxX() >= cols
+                || y + gamePiece.getMinY() < 0 || y + gamePiece.getMaxY() >= rows) {
+            return false;
+        }
+        // Line each row of the piece up with the grid row it lands on, any overlap means a block is already there
+        for (int j = gamePiece.getMinY(); j <= gamePiece.getMaxY(); j++){
+            long row = gamePiece.getRowMask(j);
+            long shifted = x >= 0 ? row << x : row >>> -x;
+            if ((occupied[y + j] & shifted) != 0){
+                return false;
             }
         }
-        // If after finishing iterating, all the coordinates of the blocks are zero, then you can put the piece here
+        // If no row overlaps, then you can put the piece here
         return true;
     }
 
@@ -141,16 +289,12 @@ public class Grid {
         x -= 1;
         y -= 1;
         if(canPlayPiece(gamePiece, x, y)){
-            int[][] blocks = gamePiece.getBlocks();
-
-            for(int i = 0; i < blocks.length; i++){
-                for(int j = 0; j < blocks[i].length; j++){
-                    if(blocks[i][j] == 0) continue;
-                    if(blocks[i][j] != 0){
-                        // offset the x and y co-ordinates to ensure a piece is played by its centre
-                        set(x + i, y + j, blocks[i][j]);
-                    }
-                }
+            int value = gamePiece.getValue();
+            // visit each set bit of the piece mask, bit (j * 3 + i) is block i, j of the piece
+            for(int bits = gamePiece.getMask(); bits != 0; bits &= bits - 1){
+                int bit = Integer.numberOfTrailingZeros(bits);
+                // offset the x and y co-ordinates to ensure a piece is played by its centre
+                set(x + bit % 3, y + bit / 3, value);
             }
         }
     }
@@ -159,9 +303,48 @@ public class Grid {
      * clean pieces
      */
     public void cleanPiece(){
-        for(int i = 0; i < rows; i++) {
-            for(int j = 0; j < cols; j++) {
-                grid[i][j].set(0);
+        if(blockChangedListener != null) {
+            for(int index = 0; index < values.length; index++) {
+                if(values[index] != 0) {
+                    blockChangedListener.blockChanged(index % cols, index / cols, 0);
+                }
+            }
+        }
+        Arrays.fill(occupied, 0L);
+        Arrays.fill(values, (byte) 0);
+        Arrays.fill(rowCounts, 0);
+        Arrays.fill(colCounts, 0);
+        fullRows = 0;
+        fullCols = 0;
+        if(view != null) {
+            for(SimpleIntegerProperty[] column : view) {
+                for(SimpleIntegerProperty property : column) {
+                    if(property != null) {
+                        property.set(0);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy the value of every block, row by row, into an array
+     * @param target array of at least cols * rows values
+     */
+    public void copyValues(byte[] target) {
+        System.arraycopy(values, 0, target, 0, values.length);
+    }
+
+    /**
+     * Set every block from an array copied from another grid of the same size, only touching blocks which changed
+     * @param source values row by row, as written by copyValues
+     */
+    public void setValues(byte[] source) {
+        for(int y = 0; y < rows; y++) {
+            for(int x = 0; x < cols; x++) {
+                if(values[y * cols + x] != source[y * cols + x]) {
+                    set(x, y, source[y * cols + x]);
+                }
             }
         }
     }
@@ -0,0 +1,101 @@
+package uk.ac.soton.comp1206.game;
+
+import javafx.util.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A Leaderboard holds the best scores offered to it, up to a fixed number, highest first.
+ *
+ * The scores are kept in a sorted array. Offering a score finds its rank by binary search, then moves the lower scores
+ * down one place, dropping the lowest if the board is full. A score which is not high enough is turned away without
+ * changing anything. Equal scores are ranked in the order they were offered.
+ */
+public class Leaderboard {
+
+    /**
+     * The scores held, highest first
+     */
+    private final Pair<String, Integer>[] entries;
+
+    /**
+     * Number of scores held
+     */
+    private int size = 0;
+
+    /**
+     * Create an empty leaderboard
+     * @param capacity the most scores held
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Leaderboard(int capacity) {
+        this.entries = (Pair<String, Integer>[]) new Pair[capacity];
+    }
+
+    /**
+     * Offer a score to the leaderboard
+     * @param entry the name and score
+     * @return the rank the score was placed at, from 0, or -1 if it was not high enough
+     */
+    public int offer(Pair<String, Integer> entry) {
+        int score = entry.getValue();
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (entries[middle].getValue() >= score) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low == entries.length) {
+            return -1;
+        }
+        int moved = Math.min(size, entries.length - 1) - low;
+        System.arraycopy(entries, low, entries, low + 1, moved);
+        entries[low] = entry;
+        if (size < entries.length) {
+            size++;
+        }
+        return low;
+    }
+
+    /**
+     * Remove every score
+     */
+    public void clear() {
+        Arrays.fill(entries, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Get the score at a rank
+     * @param rank the rank, from 0
+     * @return the name and score
+     */
+    public Pair<String, Integer> get(int rank) {
+        if (rank < 0 || rank >= size) {
+            throw new IndexOutOfBoundsException("Rank " + rank + " of " + size);
+        }
+        return entries[rank];
+    }
+
+    /**
+     * Get the number of scores held
+     * @return scores held
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the scores held
+     * @return a copy of the scores, highest first
+     */
+    public List<Pair<String, Integer>> toList() {
+        return new ArrayList<>(Arrays.asList(entries).subList(0, size));
+    }
+}
@@ -1,13 +1,13 @@
 package uk.ac.soton.comp1206.game;
 
-import javafx.application.Platform;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.network.Communicator;
+import uk.ac.soton.comp1206.network.Message;
+import uk.ac.soton.comp1206.network.PieceMessage;
+import uk.ac.soton.comp1206.network.Protocol;
 import uk.ac.soton.comp1206.ui.GameWindow;
 
-import java.util.LinkedList;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -28,9 +28,40 @@ public class MultiplayerGame extends Game{
     protected GameWindow gameWindow;
 
     /**
-     * Queue of pieces to be played
+     * Most pieces fetched from the server ahead of time
      */
-    protected LinkedList<GamePiece> gamePieceLinkedList = new LinkedList<>();
+    private static final int PIECES_AHEAD = 8;
+
+    /**
+     * When fewer pieces than this are fetched ahead, more are asked for
+     */
+    private static final int PIECES_LOW_WATERMARK = 4;
+
+    /**
+     * Pieces fetched from the server ahead of time, to be played
+     */
+    protected final PieceBuffer pieceBuffer;
+
+    /**
+     * Every how many boards sent the whole board is sent, rather than just the blocks which changed, so other players
+     * get back in sync if they missed anything
+     */
+    private static final int KEYFRAME_INTERVAL = 10;
+
+    /**
+     * The board as it was last sent to the other players, row by row
+     */
+    private byte[] sentBoard;
+
+    /**
+     * The board to be sent, row by row
+     */
+    private byte[] board;
+
+    /**
+     * Number of boards sent
+     */
+    private int boardsSent = 0;
 
     /**
      * Create a new game with given rows and columns
@@ -42,47 +73,61 @@ public class MultiplayerGame extends Game{
     public MultiplayerGame(int cols, int rows, GameWindow gameWindow) {
         super(cols, rows);
         this.gameWindow = gameWindow;
+        this.sentBoard = new byte[cols * rows];
+        this.board = new byte[cols * rows];
+        // if the server is too slow to answer, play on with a local piece rather than wait
+        this.pieceBuffer = new PieceBuffer(PIECES_AHEAD, PIECES_LOW_WATERMARK, () -> communicator.send("PIECE"),
+                new RandomPieceSource(System.nanoTime()));
     }
 
     /**
-     * set on actions when a new piece is received from the server
+     * set on actions when a new piece is received from the server, on the game thread
      * @param gamePiece game piece
      */
     public void newPiece(GamePiece gamePiece) {
-        if(currentPiece == null) {
-            currentPiece = gamePiece;
-        } else if(followingPiece == null){
-            followingPiece = gamePiece;
-            nextPieceListener.nextPiece(currentPiece, followingPiece);
-        } else {
-            gamePieceLinkedList.add(gamePiece);
+        pieceBuffer.add(gamePiece);
+        // the first two pieces to arrive become the current and following pieces
+        if(currentPiece == null && pieceBuffer.size() >= 2) {
+            followingPiece = spawnPiece();
+            nextPiece();
         }
     }
 
     /**
-     * update current piece and following piece
+     * Take the next piece fetched from the server, which asks for more when the buffer runs low
+     * @return the next piece
      */
     @Override
-    public void nextPiece() {
-        currentPiece = followingPiece;
-        followingPiece = gamePieceLinkedList.remove();
-        nextPieceListener.nextPiece(currentPiece, followingPiece);
-        communicator.send("PIECE");
+    public GamePiece spawnPiece() {
+        return pieceBuffer.next();
     }
 
     /**
-     * set on action when a piece has been played
+     * set on action when a piece has been played, sending the board to the other players
      */
     @Override
     public void afterPiece() {
         super.afterPiece();
-        StringBuilder board = new StringBuilder("BOARD ");
-        for (int x = 0; x < this.getCols(); x++) {
-            for(int y = 0; y < this.getRows(); y++) {
-                board.append(grid.get(x,y)).append(" ");
+        grid.copyValues(board);
+        int changed = 0;
+        for (int i = 0; i < board.length; i++) {
+            if (board[i] != sentBoard[i]) {
+                changed++;
             }
         }
-        communicator.send(board.toString());
+        if (changed == 0) {
+            return;
+        }
+        // a delta costs two numbers per block, so once half the board has changed the whole board is no bigger
+        if (boardsSent % KEYFRAME_INTERVAL == 0 || changed * 2 >= board.length) {
+            communicator.sendLatest(Protocol.encodeBoard(board));
+        } else {
+            communicator.send(Protocol.encodeBoardDelta(sentBoard, board));
+        }
+        boardsSent++;
+        byte[] previous = sentBoard;
+        sentBoard = board;
+        board = previous;
     }
 
     /**
@@ -90,19 +135,10 @@ public class MultiplayerGame extends Game{
      */
     @Override
     public void initialiseGame() {
-        scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
         communicator = gameWindow.getCommunicator();
-//Listens for messages from communicator and handles the command
-        communicator.addListener(message -> Platform.runLater(() -> listen(message.trim())));
-        Runnable sendPiece = new Runnable() {
-            @Override
-            public void run() {
-                communicator.send("PIECE");
-            }
-        };
-        for(int x = 0; x < 5; x++) {
-            scheduledExecutorService.schedule(sendPiece, 1000, TimeUnit.MILLISECONDS);
-        }
+//Listens for messages from communicator and handles the command on the game thread
+        communicator.addListener(message -> execute(() -> listen(message)), Protocol.PIECE);
+        scheduledExecutorService.schedule(pieceBuffer::fill, 1000, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -115,7 +151,7 @@ public class MultiplayerGame extends Game{
     @Override
     public int score(int lines, int blocks) {
         super.score(lines, blocks);
-        communicator.send("SCORE " + this.scoreProperty().get());
+        communicator.sendLatest("SCORE " + getScore());
         return lines;
     }
 
@@ -123,11 +159,10 @@ public class MultiplayerGame extends Game{
      * Handles messages from communicator
      * @param message message received from communicator
      */
-    protected void listen(String message) {
-        if(message.contains("PIECE")) {
+    protected void listen(Message message) {
+        if(message instanceof PieceMessage) {
             logger.info("Added piece");
-            message = message.replace("PIECE ", "");
-            GamePiece gamePiece = GamePiece.createPiece(Integer.parseInt(message));
+            GamePiece gamePiece = GamePiece.createPiece(((PieceMessage) message).getPiece());
             newPiece(gamePiece);
         }
     }
@@ -0,0 +1,167 @@
+package uk.ac.soton.comp1206.game;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A PieceSource which hands out pieces fetched ahead of time, for the multiplayer game where every piece is asked for
+ * from the server.
+ *
+ * Pieces are kept in a fixed size ring. Whenever the pieces held plus those already asked for drop below the low
+ * watermark, enough are asked for to fill the ring again, without waiting for them to arrive. If the ring is empty when
+ * a piece is needed, because the server is slow to answer, the buffer stalls: a piece is taken from the fallback source
+ * instead, so the game carries on, and the stall is counted and logged.
+ *
+ * The server hands out the same sequence of pieces to every player, so after a stall the next piece to arrive is the
+ * one the fallback piece stood in for. It is skipped, so the player carries on with the pieces everyone else gets.
+ *
+ * The buffer is not thread safe. In the game it is only used on the game thread.
+ */
+public class PieceBuffer implements PieceSource {
+
+    private static final Logger logger = LogManager.getLogger(PieceBuffer.class);
+
+    /**
+     * the pieces held, from head onwards
+     */
+    private final GamePiece[] ring;
+
+    /**
+     * when fewer pieces than this are held or asked for, more are asked for
+     */
+    private final int lowWatermark;
+
+    /**
+     * asks for one more piece, which is added when it arrives
+     */
+    private final Runnable requester;
+
+    /**
+     * where pieces come from when the ring is empty
+     */
+    private final PieceSource fallback;
+
+    /**
+     * position of the next piece in the ring
+     */
+    private int head = 0;
+
+    /**
+     * number of pieces held
+     */
+    private int size = 0;
+
+    /**
+     * number of pieces asked for which have not arrived
+     */
+    private int requested = 0;
+
+    /**
+     * number of times a piece was needed when none were held
+     */
+    private int stalls = 0;
+
+    /**
+     * number of pieces still to arrive which fallback pieces were used in place of, and so will be skipped
+     */
+    private int owed = 0;
+
+    /**
+     * Create a new piece buffer. Nothing is asked for until fill is called.
+     *
+     * @param capacity the most pieces held or asked for at once
+     * @param lowWatermark when fewer pieces than this are held or asked for, more are asked for
+     * @param requester asks for one more piece
+     * @param fallback where pieces come from when none are held
+     */
+    public PieceBuffer(int capacity, int lowWatermark, Runnable requester, PieceSource fallback) {
+        if (lowWatermark < 1 || lowWatermark > capacity) {
+            throw new IllegalArgumentException("Low watermark must be between 1 and " + capacity);
+        }
+        this.ring = new GamePiece[capacity];
+        this.lowWatermark = lowWatermark;
+        this.requester = requester;
+        this.fallback = fallback;
+    }
+
+    /**
+     * Ask for enough pieces to fill the buffer, counting those already asked for
+     */
+    public void fill() {
+        // pieces owed are skipped when they arrive, so they do not count towards filling the buffer
+        while (size + requested - owed < ring.length) {
+            requested++;
+            requester.run();
+        }
+    }
+
+    /**
+     * Add a piece which has arrived
+     * @param piece the piece
+     */
+    public void add(GamePiece piece) {
+        if (requested > 0) {
+            requested--;
+        }
+        if (owed > 0) {
+            // a fallback piece was used in this piece's place
+            owed--;
+            logger.debug("Skipping {}, already replaced after a stall", piece);
+            return;
+        }
+        if (size == ring.length) {
+            logger.warn("Piece buffer full, dropping {}", piece);
+            return;
+        }
+        ring[(head + size) % ring.length] = piece;
+        size++;
+    }
+
+    /**
+     * Take the next piece, asking for more if the buffer is running low
+     * @return the next piece
+     */
+    @Override
+    public GamePiece next() {
+        GamePiece piece;
+        if (size == 0) {
+            stalls++;
+            owed++;
+            piece = fallback.next();
+            logger.warn("Piece buffer empty with {} pieces asked for, using {} (stall {})", requested, piece, stalls);
+        } else {
+            piece = ring[head];
+            ring[head] = null;
+            head = (head + 1) % ring.length;
+            size--;
+        }
+        if (size + requested - owed < lowWatermark) {
+            fill();
+        }
+        return piece;
+    }
+
+    /**
+     * get the number of pieces held
+     * @return pieces held
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * get the number of pieces asked for which have not arrived
+     * @return pieces asked for
+     */
+    public int getRequested() {
+        return requested;
+    }
+
+    /**
+     * get the number of times a piece was needed when none were held
+     * @return stalls
+     */
+    public int getStalls() {
+        return stalls;
+    }
+}
@@ -0,0 +1,14 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * A PieceSource decides which pieces a game is given, one after another. Games take their pieces from a source so
+ * the sequence can be made reproducible (from a seed) or replayed exactly (from a recording).
+ */
+public interface PieceSource {
+
+    /**
+     * Get the next piece in the sequence
+     * @return the next piece
+     */
+    GamePiece next();
+}
@@ -0,0 +1,32 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.SplittableRandom;
+
+/**
+ * A PieceSource which picks every piece at random, independently of the others. The same seed always gives the same
+ * sequence of pieces.
+ */
+public class RandomPieceSource implements PieceSource {
+
+    /**
+     * random generator used to pick pieces
+     */
+    private final SplittableRandom random;
+
+    /**
+     * Create a new random piece source
+     * @param seed the seed for the sequence
+     */
+    public RandomPieceSource(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Get a random piece
+     * @return the next piece
+     */
+    @Override
+    public GamePiece next() {
+        return GamePiece.createPiece(random.nextInt(GamePiece.PIECES));
+    }
+}
@@ -0,0 +1,53 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A PieceSource which plays back a recorded sequence of piece numbers, for replaying a game exactly.
+ */
+public class RecordedPieceSource implements PieceSource {
+
+    /**
+     * the recorded piece numbers
+     */
+    private final int[] pieces;
+
+    /**
+     * the position of the next piece in the recording
+     */
+    private int position = 0;
+
+    /**
+     * Create a new recorded piece source
+     * @param pieces the piece numbers to play back, in order
+     */
+    public RecordedPieceSource(int... pieces) {
+        for (int piece : pieces) {
+            if (piece < 0 || piece >= GamePiece.PIECES) {
+                throw new IndexOutOfBoundsException("No such piece: " + piece);
+            }
+        }
+        this.pieces = pieces.clone();
+    }
+
+    /**
+     * Get the next piece of the recording
+     * @return the next piece
+     * @throws NoSuchElementException if the recording has run out
+     */
+    @Override
+    public GamePiece next() {
+        if (position == pieces.length) {
+            throw new NoSuchElementException("Recorded piece sequence finished after " + pieces.length + " pieces");
+        }
+        return GamePiece.createPiece(pieces[position++]);
+    }
+
+    /**
+     * Get the number of pieces still to be played back
+     * @return remaining pieces
+     */
+    public int remaining() {
+        return pieces.length - position;
+    }
+}
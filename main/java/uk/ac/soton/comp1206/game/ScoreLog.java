@@ -0,0 +1,265 @@
+package uk.ac.soton.comp1206.game;
+
+import javafx.util.Pair;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A ScoreLog is a binary file of scores which is only ever appended to, until it is compacted.
+ *
+ * The file starts with a header: a magic number, the format version, the number of records, the number of records
+ * when it was last compacted, and the end of the last complete record. Each record is the score, the length of the name
+ * in bytes and the name in UTF-8. A record is written before the header is moved past it, so a record cut short by a
+ * crash is never read. Reading loads the whole file into memory with one read and scans the records there. The file
+ * is not mapped, as a mapped file can not be replaced or moved on some systems until the mapping is collected.
+ *
+ * Compacting writes the scores to keep into a new file, which then replaces the log, so a crash while compacting
+ * leaves either the old log or the new one.
+ *
+ * A ScoreLog is not thread safe.
+ */
+public class ScoreLog {
+
+    private static final Logger logger = LogManager.getLogger(ScoreLog.class);
+
+    /**
+     * Marks a score log, "TECS"
+     */
+    private static final int MAGIC = 0x54454353;
+
+    /**
+     * The version of the format
+     */
+    private static final short VERSION = 1;
+
+    /**
+     * Size of the header: magic, version, padding, records, compacted records and end
+     */
+    private static final int HEADER_SIZE = 4 + 2 + 2 + 4 + 4 + 8;
+
+    /**
+     * Position of the number of records in the header
+     */
+    private static final int RECORDS_POSITION = 8;
+
+    /**
+     * Size of a record without its name: the score and the length of the name
+     */
+    private static final int RECORD_SIZE = 4 + 2;
+
+    /**
+     * The log file
+     */
+    private final Path path;
+
+    /**
+     * Number of records in the log
+     */
+    private int records = 0;
+
+    /**
+     * Number of records when the log was last compacted
+     */
+    private int compacted = 0;
+
+    /**
+     * End of the last complete record
+     */
+    private long end = HEADER_SIZE;
+
+    /**
+     * Create a score log. Nothing is read until read is called.
+     * @param path the log file
+     */
+    public ScoreLog(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Whether the log file exists
+     * @return true if it exists
+     */
+    public boolean exists() {
+        return Files.exists(path);
+    }
+
+    /**
+     * Read every score in the log
+     * @return the names and scores, in the order they were added
+     * @throws IOException if the file can not be read or is not a score log
+     */
+    public List<Pair<String, Integer>> read() throws IOException {
+        List<Pair<String, Integer>> scores = new ArrayList<>();
+        if (!exists()) {
+            records = compacted = 0;
+            end = HEADER_SIZE;
+            return scores;
+        }
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large to be a score log");
+            }
+            buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading until the whole file is in the buffer
+            }
+            buffer.flip();
+        }
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+            throw new IOException(path + " is not a score log");
+        }
+        buffer.getShort();
+        int count = buffer.getInt();
+        int compactedCount = buffer.getInt();
+        long last = Math.min(buffer.getLong(), buffer.limit());
+
+        byte[] name = new byte[64];
+        while (scores.size() < count && buffer.position() + RECORD_SIZE <= last) {
+            int score = buffer.getInt();
+            int length = buffer.getShort() & 0xFFFF;
+            if (buffer.position() + length > last) {
+                break;
+            }
+            if (length > name.length) {
+                name = new byte[length];
+            }
+            buffer.get(name, 0, length);
+            scores.add(new Pair<>(new String(name, 0, length, StandardCharsets.UTF_8), score));
+        }
+        // only take on the header once the whole log has been read
+        records = scores.size();
+        compacted = compactedCount;
+        end = buffer.position();
+        logger.info("Read {} scores from {}", records, path);
+        return scores;
+    }
+
+    /**
+     * Append a batch of scores, creating the log if it does not exist. If the log exists it must have been read first.
+     *
+     * The records are synced to the disk before the header is moved past them, and the header is synced after, so the
+     * whole batch costs two syncs however many scores it holds.
+     * @param batch the names and scores
+     * @throws IOException if the log can not be written
+     */
+    public void append(List<Pair<String, Integer>> batch) throws IOException {
+        boolean created = !exists();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (created) {
+                records = compacted = 0;
+                end = HEADER_SIZE;
+                channel.write(header(0, 0, HEADER_SIZE), 0);
+            }
+            long position = end;
+            for (Pair<String, Integer> entry : batch) {
+                ByteBuffer record = record(entry.getKey(), entry.getValue());
+                while (record.hasRemaining()) {
+                    position += channel.write(record, position);
+                }
+            }
+            channel.force(false);
+
+            // move the header past the records only once they are on the disk
+            ByteBuffer counts = ByteBuffer.allocate(HEADER_SIZE - RECORDS_POSITION);
+            counts.putInt(records + batch.size()).putInt(compacted).putLong(position).flip();
+            channel.write(counts, RECORDS_POSITION);
+            channel.force(false);
+            records += batch.size();
+            end = position;
+        }
+    }
+
+    /**
+     * Replace the log with one holding only the given scores
+     * @param scores the scores to keep
+     * @throws IOException if the new log can not be written, in which case the old log is left as it was
+     */
+    public void compact(List<Pair<String, Integer>> scores) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        long length = HEADER_SIZE;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.position(HEADER_SIZE);
+            for (Pair<String, Integer> entry : scores) {
+                ByteBuffer record = record(entry.getKey(), entry.getValue());
+                length += record.limit();
+                channel.write(record);
+            }
+            channel.write(header(scores.size(), scores.size(), length), 0);
+            // the new log must be on the disk before it replaces the old one
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        records = compacted = scores.size();
+        end = length;
+        logger.info("Compacted {} to {} scores", path, records);
+    }
+
+    /**
+     * Move a log which can not be read out of the way, to the same name ending in .bad, so a new log can be started
+     * @throws IOException if the log can not be moved
+     */
+    public void moveAside() throws IOException {
+        Path bad = path.resolveSibling(path.getFileName() + ".bad");
+        Files.move(path, bad, StandardCopyOption.REPLACE_EXISTING);
+        records = compacted = 0;
+        end = HEADER_SIZE;
+        logger.warn("Moved {} aside to {}", path, bad);
+    }
+
+    /**
+     * Get the number of records in the log
+     * @return records
+     */
+    public int getRecords() {
+        return records;
+    }
+
+    /**
+     * Get the number of records added since the log was last compacted
+     * @return records added
+     */
+    public int getAddedSinceCompaction() {
+        return records - compacted;
+    }
+
+    /**
+     * Encode the header
+     * @param records number of records
+     * @param compacted number of records when the log was last compacted
+     * @param end end of the last record
+     * @return the header, ready to write
+     */
+    private static ByteBuffer header(int records, int compacted, long end) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putInt(records).putInt(compacted).putLong(end);
+        return header.flip();
+    }
+
+    /**
+     * Encode a record
+     * @param name name of the player
+     * @param score the score
+     * @return the record, ready to write
+     */
+    private static ByteBuffer record(String name, int score) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, 0xFFFF);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE + length);
+        record.putInt(score).putShort((short) length).put(bytes, 0, length);
+        return record.flip();
+    }
+}
@@ -0,0 +1,367 @@
+package uk.ac.soton.comp1206.game;
+
+import javafx.util.Pair;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ScoreRepository holds the local high scores. The score log is read once, and the scores are then kept in memory,
+ * highest first. A new score is inserted in its place and appended to the log, so the high score can be read at any
+ * time without touching the disk.
+ *
+ * The disk is only ever used on the repository's own thread. Loading and adding return futures which complete once
+ * the work is done, so no scene waits for the disk. Scores added while the log is being written are written together
+ * in the next batch, and synced to the disk once per batch.
+ *
+ * Once enough scores have been added, the log is compacted down to the best scores of each player. If there is no log
+ * yet, the scores are imported from the old text scores file, or the default scores are used.
+ */
+public class ScoreRepository {
+
+    private static final Logger logger = LogManager.getLogger(ScoreRepository.class);
+
+    /**
+     * The log the local scores are kept in
+     */
+    private static final String SCORES_LOG = "scores.dat";
+
+    /**
+     * The text file the local scores used to be kept in
+     */
+    private static final String LEGACY_SCORES_FILE = "scores.txt";
+
+    /**
+     * Most scores kept for each player when the log is compacted
+     */
+    private static final int KEEP_PER_PLAYER = 10;
+
+    /**
+     * Number of scores added to the log after which it is compacted
+     */
+    private static final int COMPACT_INTERVAL = 256;
+
+    /**
+     * The repository shared by every scene
+     */
+    private static ScoreRepository instance;
+
+    /**
+     * The score log
+     */
+    private final ScoreLog log;
+
+    /**
+     * The text scores file to import when there is no log, or null
+     */
+    private final Path legacyFile;
+
+    /**
+     * Every score, highest first. Equal scores are kept in the order they were added.
+     */
+    private final List<Pair<String, Integer>> scores = new ArrayList<>();
+
+    /**
+     * The thread which reads and writes the score log
+     */
+    private final ExecutorService io = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Score IO");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Completes with the scores read from the score log once it has been read, or null if reading has not started
+     */
+    private CompletableFuture<List<Pair<String, Integer>>> loading;
+
+    /**
+     * Whether scores can be appended to the log. Cleared if a log which could not be read could neither be moved aside
+     * nor replaced, as appending to it would write at the wrong place. Only used on the io thread.
+     */
+    private boolean writable = true;
+
+    /**
+     * Scores added but not yet written to the log
+     */
+    private final List<Pair<String, Integer>> pending = new ArrayList<>();
+
+    /**
+     * Completed once the pending scores are written
+     */
+    private final List<CompletableFuture<Void>> writes = new ArrayList<>();
+
+    /**
+     * Get the repository shared by every scene
+     * @return the repository
+     */
+    public static synchronized ScoreRepository getInstance() {
+        if (instance == null) {
+            instance = new ScoreRepository(Paths.get(SCORES_LOG), Paths.get(LEGACY_SCORES_FILE));
+        }
+        return instance;
+    }
+
+    /**
+     * Create a repository backed by a score log. The log is not read until the scores are needed.
+     * @param logFile the score log
+     * @param legacyFile the text scores file to import when there is no log, or null
+     */
+    public ScoreRepository(Path logFile, Path legacyFile) {
+        this.log = new ScoreLog(logFile);
+        this.legacyFile = legacyFile;
+    }
+
+    /**
+     * Start reading the score log, if it has not been started
+     * @return completes once the scores have been read with a copy of every score then held, highest first, including
+     * any added since the log was read
+     */
+    public synchronized CompletableFuture<List<Pair<String, Integer>>> load() {
+        if (loading == null) {
+            loading = CompletableFuture.supplyAsync(this::read, io);
+        }
+        return loading.thenApply(read -> getScores());
+    }
+
+    /**
+     * Get the highest score held in memory
+     * @return the highest score, or 0 if there are none or they have not been loaded
+     */
+    public synchronized int getHighScore() {
+        return scores.isEmpty() ? 0 : scores.get(0).getValue();
+    }
+
+    /**
+     * Get every score held in memory
+     * @return a copy of the scores, highest first, empty if they have not been loaded
+     */
+    public synchronized List<Pair<String, Integer>> getScores() {
+        return new ArrayList<>(scores);
+    }
+
+    /**
+     * Add a score, once the scores are loaded, and write it to the score log with the next batch
+     * @param name name of the player
+     * @param score the score
+     * @return completes once the score is on the disk, or exceptionally if it could not be written
+     */
+    public CompletableFuture<Void> add(String name, int score) {
+        Pair<String, Integer> entry = new Pair<>(name, score);
+        return load().thenCompose(loaded -> {
+            CompletableFuture<Void> written = new CompletableFuture<>();
+            synchronized (this) {
+                insert(entry);
+                pending.add(entry);
+                writes.add(written);
+                if (pending.size() == 1) {
+                    io.execute(this::flush);
+                }
+            }
+            return written;
+        });
+    }
+
+    /**
+     * Write any scores still waiting, and stop the thread which writes them
+     */
+    public void close() {
+        io.shutdown();
+        try {
+            if (!io.awaitTermination(1, TimeUnit.SECONDS)) {
+                logger.warn("Scores still being written at shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Write the pending scores to the log as one batch, on the io thread, then compact the log if it is due
+     */
+    private void flush() {
+        List<Pair<String, Integer>> batch;
+        List<CompletableFuture<Void>> waiting;
+        synchronized (this) {
+            batch = new ArrayList<>(pending);
+            waiting = new ArrayList<>(writes);
+            pending.clear();
+            writes.clear();
+        }
+        try {
+            if (!writable) {
+                throw new IOException("The score log could not be read or replaced, so scores are not being saved");
+            }
+            log.append(batch);
+            logger.debug("Wrote {} scores", batch.size());
+            waiting.forEach(written -> written.complete(null));
+        } catch (IOException e) {
+            logger.error("Unable to add scores to score log", e);
+            waiting.forEach(written -> written.completeExceptionally(e));
+        }
+        if (log.getAddedSinceCompaction() >= COMPACT_INTERVAL) {
+            List<Pair<String, Integer>> kept;
+            List<Pair<String, Integer>> unwritten;
+            synchronized (this) {
+                retainBest(scores);
+                kept = new ArrayList<>(scores);
+                unwritten = new ArrayList<>(pending);
+            }
+            // scores still waiting to be written will be appended after compacting, so leave them out
+            kept.removeIf(entry -> unwritten.stream().anyMatch(unsaved -> unsaved == entry));
+            compact(kept);
+        }
+    }
+
+    /**
+     * Insert a score after every score at least as high, found by binary search
+     * @param entry the name and score
+     */
+    private void insert(Pair<String, Integer> entry) {
+        int low = 0;
+        int high = scores.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (scores.get(middle).getValue() >= entry.getValue()) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        scores.add(low, entry);
+    }
+
+    /**
+     * Read the score log on the io thread, importing or writing the first scores if there is no log
+     * @return the scores, highest first
+     */
+    private List<Pair<String, Integer>> read() {
+        List<Pair<String, Integer>> read = new ArrayList<>();
+        boolean created = !log.exists();
+        boolean unreadable = false;
+        if (!created) {
+            try {
+                read.addAll(log.read());
+            } catch (IOException e) {
+                // appending to a log which can not be read would lose every score, so start a new one
+                logger.error("Unable to load scores, starting a new score log", e);
+                unreadable = !moveAside();
+                read.clear();
+                created = true;
+            }
+        }
+        if (created) {
+            read.addAll(importLegacyScores());
+            if (read.isEmpty()) {
+                read.addAll(defaultScores());
+            }
+        }
+        // sorting is stable, so equal scores stay in the order they were added
+        read.sort((a, b) -> b.getValue() - a.getValue());
+        if (created || log.getAddedSinceCompaction() >= COMPACT_INTERVAL) {
+            retainBest(read);
+            if (!compact(read) && unreadable) {
+                // the unreadable log is still in place, so never append to it
+                writable = false;
+                logger.error("Unable to replace the score log, scores will not be saved");
+            }
+        }
+        synchronized (this) {
+            scores.addAll(read);
+            return new ArrayList<>(scores);
+        }
+    }
+
+    /**
+     * Keep a score log which could not be read, so the new log does not replace it
+     * @return true if it was moved
+     */
+    private boolean moveAside() {
+        try {
+            log.moveAside();
+            return true;
+        } catch (IOException e) {
+            logger.error("Unable to move the score log aside", e);
+            return false;
+        }
+    }
+
+    /**
+     * Drop all but the best scores of each player
+     * @param ranked scores, highest first
+     */
+    private static void retainBest(List<Pair<String, Integer>> ranked) {
+        Map<String, Integer> kept = new HashMap<>();
+        ranked.removeIf(entry -> kept.merge(entry.getKey(), 1, Integer::sum) > KEEP_PER_PLAYER);
+    }
+
+    /**
+     * Rewrite the log with only the given scores, on the io thread
+     * @param kept the scores to keep
+     * @return true if the log was rewritten
+     */
+    private boolean compact(List<Pair<String, Integer>> kept) {
+        try {
+            log.compact(kept);
+            return true;
+        } catch (IOException e) {
+            logger.error("Unable to compact score log", e);
+            return false;
+        }
+    }
+
+    /**
+     * Read the scores from the old text scores file
+     * @return the names and scores, empty if there is no file
+     */
+    private List<Pair<String, Integer>> importLegacyScores() {
+        List<Pair<String, Integer>> imported = new ArrayList<>();
+        if (legacyFile == null || !Files.exists(legacyFile)) {
+            return imported;
+        }
+        logger.info("Importing scores from {}", legacyFile);
+        try (BufferedReader reader = Files.newBufferedReader(legacyFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.lastIndexOf(':');
+                if (separator < 0) {
+                    continue;
+                }
+                try {
+                    imported.add(new Pair<>(line.substring(0, separator), Integer.parseInt(line.substring(separator + 1).trim())));
+                } catch (NumberFormatException e) {
+                    logger.warn("Skipping malformed score: {}", line);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Unable to import scores", e);
+        }
+        return imported;
+    }
+
+    /**
+     * The scores to start with when there are none
+     * @return the default names and scores
+     */
+    private static List<Pair<String, Integer>> defaultScores() {
+        List<Pair<String, Integer>> defaults = new ArrayList<>();
+        for (int score = 10000; score >= 3000; score -= 1000) {
+            defaults.add(new Pair<>("Jingyi", score));
+        }
+        return defaults;
+    }
+}
@@ -0,0 +1,72 @@
+package uk.ac.soton.comp1206.network;
+
+import java.util.Arrays;
+
+/**
+ * The board of another player in a multiplayer game. Either every block, BOARD player:v v v ..., or only the blocks which
+ * changed since the last board, BOARD player:D i v i v ...
+ */
+public class BoardMessage extends Message {
+
+    /**
+     * The player whose board it is
+     */
+    private final String player;
+
+    /**
+     * The value of every block row by row, or pairs of block index and value for a delta
+     */
+    private final int[] values;
+
+    /**
+     * Whether only the blocks which changed were sent
+     */
+    private final boolean delta;
+
+    /**
+     * Create a new board message
+     * @param player the player whose board it is
+     * @param values the value of every block, or pairs of block index and value for a delta
+     * @param delta whether only the blocks which changed were sent
+     */
+    public BoardMessage(String player, int[] values, boolean delta) {
+        super(Protocol.BOARD);
+        this.player = player;
+        this.values = values;
+        this.delta = delta;
+    }
+
+    /**
+     * Get the player whose board it is
+     * @return player
+     */
+    public String getPlayer() {
+        return player;
+    }
+
+    /**
+     * Get the value of every block row by row, or for a delta pairs of block index and value. The array is shared and
+     * must not be modified.
+     * @return values
+     */
+    public int[] getValues() {
+        return values;
+    }
+
+    /**
+     * Whether only the blocks which changed were sent
+     * @return true for a delta
+     */
+    public boolean isDelta() {
+        return delta;
+    }
+
+    /**
+     * Return the player and values
+     * @return message
+     */
+    @Override
+    public String toString() {
+        return getCommand() + " " + player + ":" + (delta ? Protocol.DELTA + " " : "") + Arrays.toString(values);
+    }
+}
@@ -0,0 +1,185 @@
+package uk.ac.soton.comp1206.network;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.event.ChannelsChangedListener;
+import uk.ac.soton.comp1206.event.MessageListener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ChannelService keeps the list of channels on the server up to date while the lobby is showing.
+ *
+ * There is one service for the game window. It asks the server for the channel list when it is started, then again
+ * each time the refresh interval passes. Every reply is compared with the last, and only the channels opened or closed
+ * are passed on. While nothing changes the interval doubles, up to MAX_INTERVAL, and it drops back to MIN_INTERVAL as
+ * soon as something does, or when refresh is called after the player changes a channel themselves.
+ *
+ * The service is stopped whenever the scene changes, which cancels the schedule.
+ */
+public class ChannelService {
+
+    private static final Logger logger = LogManager.getLogger(ChannelService.class);
+
+    /**
+     * Shortest time between asking for the channel list, in milliseconds
+     */
+    private static final long MIN_INTERVAL = 2000;
+
+    /**
+     * Longest time between asking for the channel list, in milliseconds
+     */
+    private static final long MAX_INTERVAL = 30000;
+
+    /**
+     * The communicator the channel list is asked for and received on
+     */
+    private final Communicator communicator;
+
+    /**
+     * The thread the refreshes are scheduled on
+     */
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Channel Refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Receives the channel list from the communicator
+     */
+    private final MessageListener receiver = this::receive;
+
+    /**
+     * The channels in the last list received
+     */
+    private Set<String> channels = new LinkedHashSet<>();
+
+    /**
+     * The listener to pass changed channels to, or null when stopped
+     */
+    private ChannelsChangedListener listener;
+
+    /**
+     * Time to wait before asking for the channel list again
+     */
+    private long interval = MIN_INTERVAL;
+
+    /**
+     * The next refresh, or null if none is scheduled
+     */
+    private ScheduledFuture<?> next;
+
+    /**
+     * Create a channel service. Nothing is asked for until it is started.
+     * @param communicator the communicator
+     */
+    public ChannelService(Communicator communicator) {
+        this.communicator = communicator;
+    }
+
+    /**
+     * Start keeping the channel list up to date. Every channel already open is passed on with the first reply.
+     * @param listener the listener to pass changed channels to
+     */
+    public synchronized void start(ChannelsChangedListener listener) {
+        stop();
+        this.listener = listener;
+        this.channels = new LinkedHashSet<>();
+        communicator.addListener(receiver, Protocol.CHANNELS);
+        refresh();
+    }
+
+    /**
+     * Stop keeping the channel list up to date, cancelling the next refresh
+     */
+    public synchronized void stop() {
+        if (listener == null) {
+            return;
+        }
+        communicator.removeMessageListener(receiver);
+        listener = null;
+        if (next != null) {
+            next.cancel(false);
+            next = null;
+        }
+    }
+
+    /**
+     * Ask for the channel list now, and go back to refreshing often. Used when the player opens or leaves a channel.
+     */
+    public synchronized void refresh() {
+        interval = MIN_INTERVAL;
+        poll();
+    }
+
+    /**
+     * Ask for the channel list, and schedule the next time
+     */
+    private synchronized void poll() {
+        if (listener == null) {
+            return;
+        }
+        communicator.send("LIST");
+        // ask again after the longest interval if no reply comes, which a reply brings forward
+        schedule(MAX_INTERVAL);
+    }
+
+    /**
+     * Schedule the next refresh, replacing any already scheduled
+     * @param delay time to wait in milliseconds
+     */
+    private void schedule(long delay) {
+        if (next != null) {
+            next.cancel(false);
+        }
+        next = scheduler.schedule(this::poll, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Compare a channel list received with the last one, pass on the changes and schedule the next refresh
+     * @param message the CHANNELS message
+     */
+    private void receive(Message message) {
+        ChannelsChangedListener target;
+        List<String> added = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        synchronized (this) {
+            if (listener == null) {
+                return;
+            }
+            Set<String> received = new LinkedHashSet<>(((ListMessage) message).getItems());
+            for (String channel : received) {
+                if (!channels.contains(channel)) {
+                    added.add(channel);
+                }
+            }
+            for (String channel : channels) {
+                if (!received.contains(channel)) {
+                    removed.add(channel);
+                }
+            }
+            channels = received;
+
+            if (added.isEmpty() && removed.isEmpty()) {
+                interval = Math.min(interval * 2, MAX_INTERVAL);
+            } else {
+                interval = MIN_INTERVAL;
+            }
+            logger.debug("{} channels, {} opened, {} closed, next refresh in {} ms", received.size(), added.size(),
+                    removed.size(), interval);
+            schedule(interval);
+            target = listener;
+        }
+        if (!added.isEmpty() || !removed.isEmpty()) {
+            target.channelsChanged(added, removed);
+        }
+    }
+}
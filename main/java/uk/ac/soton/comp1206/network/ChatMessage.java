@@ -0,0 +1,53 @@
+package uk.ac.soton.comp1206.network;
+
+/**
+ * A chat message sent by a player: MSG sender:text
+ */
+public class ChatMessage extends Message {
+
+    /**
+     * The player who sent the message
+     */
+    private final String sender;
+
+    /**
+     * The text of the message, which may itself contain colons
+     */
+    private final String text;
+
+    /**
+     * Create a new chat message
+     * @param sender the player who sent it
+     * @param text the text of the message
+     */
+    public ChatMessage(String sender, String text) {
+        super(Protocol.MSG);
+        this.sender = sender;
+        this.text = text;
+    }
+
+    /**
+     * Get the player who sent the message
+     * @return sender
+     */
+    public String getSender() {
+        return sender;
+    }
+
+    /**
+     * Get the text of the message
+     * @return text
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Return the message as it was sent
+     * @return message
+     */
+    @Override
+    public String toString() {
+        return getCommand() + " " + sender + ":" + text;
+    }
+}
@@ -5,13 +5,29 @@ import javafx.scene.control.Alert;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.event.CommunicationsListener;
+import uk.ac.soton.comp1206.event.MessageListener;
 
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Uses web sockets to talk to a web socket server and relays communication to attached listeners
  *
+ * Listeners can subscribe to every message as text, or only to messages starting with particular commands (such as
+ * BOARD or MSG). Those messages are decoded once by the Protocol, and each is only passed to the listeners for its
+ * command. Listeners are kept in copy on write lists, so they can be added and cleared from the JavaFX thread while
+ * messages are relayed on the web socket thread.
+ *
+ * Messages to the server are queued and sent together a frame later by the communicator's own thread, so the caller
+ * never waits on the socket. Messages sent with sendLatest replace any queued message with the same command, so only
+ * the latest BOARD or SCORE goes out.
+ *
  * YOU DO NOT NEED TO WORRY ABOUT THIS CLASS! Leave it be :-)
  */
 public class Communicator {
@@ -21,7 +37,37 @@ public class Communicator {
     /**
      * Attached communication listeners listening to messages on this Communicator. Each will be sent any messages.
      */
-    private final List<CommunicationsListener> handlers = new ArrayList<>();
+    private final List<CommunicationsListener> handlers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Attached communication listeners for each command. Each will only be sent messages starting with that command.
+     */
+    private final Map<String, List<MessageListener>> commandHandlers = new ConcurrentHashMap<>();
+
+    /**
+     * How long after the first message is queued the queue is sent, in milliseconds. About one frame.
+     */
+    private static final long FLUSH_DELAY = 16;
+
+    /**
+     * Messages waiting to be sent, in order. Messages sent with sendLatest are keyed by their command, so a newer one
+     * replaces them, and other messages have a key of their own.
+     */
+    private final LinkedHashMap<Object, String> outbound = new LinkedHashMap<>();
+
+    /**
+     * Number of queued messages replaced by newer ones, since the communicator was created
+     */
+    private long coalesced = 0;
+
+    /**
+     * Sends the queued messages
+     */
+    private final ScheduledExecutorService sender = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Communicator");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     private WebSocket ws = null;
 
@@ -82,14 +128,70 @@ public class Communicator {
         }
     }
 
-    /** Send a message to the server
+    /** Send a message to the server. The message is queued and sent with any others a frame later.
      *
      * @param message Message to send
      */
     public void send(String message) {
-        logger.info("Sending message: " + message);
+        queue(new Object(), message);
+    }
+
+    /**
+     * Send a message to the server which makes any earlier queued message with the same command out of date, such as a
+     * SCORE or a full BOARD. If one is still waiting, it is dropped and this one is queued after everything else.
+     *
+     * @param message Message to send
+     */
+    public void sendLatest(String message) {
+        int space = message.indexOf(' ');
+        queue(space < 0 ? message : message.substring(0, space), message);
+    }
+
+    /**
+     * Get the number of messages waiting to be sent
+     * @return queue depth
+     */
+    public int getQueueDepth() {
+        synchronized (outbound) {
+            return outbound.size();
+        }
+    }
+
+    /**
+     * Queue a message, and schedule the queue to be sent if it was empty
+     * @param key the key of the message
+     * @param message the message
+     */
+    private void queue(Object key, String message) {
+        boolean first;
+        synchronized (outbound) {
+            first = outbound.isEmpty();
+            // remove first, so a replacement goes to the back of the queue after anything queued since
+            if (outbound.remove(key) != null) {
+                coalesced++;
+            }
+            outbound.put(key, message);
+        }
+        if (first) {
+            sender.schedule(this::flush, FLUSH_DELAY, TimeUnit.MILLISECONDS);
+        }
+    }
 
-        ws.sendText(message);
+    /**
+     * Send every queued message, on the communicator's thread
+     */
+    private void flush() {
+        String[] messages;
+        long replaced;
+        synchronized (outbound) {
+            messages = outbound.values().toArray(new String[0]);
+            outbound.clear();
+            replaced = coalesced;
+        }
+        logger.debug("Sending {} queued messages, {} replaced so far", messages.length, replaced);
+        for (String message : messages) {
+            ws.sendText(message);
+        }
     }
 
     /**
@@ -100,11 +202,41 @@ public class Communicator {
         this.handlers.add(listener);
     }
 
+    /**
+     * Add a new listener to receive only the messages from the server starting with one of the given commands, decoded
+     * @param listener the listener to add
+     * @param commands the commands to listen for, such as Protocol.BOARD
+     */
+    public void addListener(MessageListener listener, String... commands) {
+        for(String command : commands) {
+            this.commandHandlers.computeIfAbsent(command, key -> new CopyOnWriteArrayList<>()).add(listener);
+        }
+    }
+
+    /**
+     * Remove a listener for every message
+     * @param listener the listener to remove
+     */
+    public void removeListener(CommunicationsListener listener) {
+        this.handlers.remove(listener);
+    }
+
+    /**
+     * Remove a listener for decoded messages, whichever commands it was listening to
+     * @param listener the listener to remove
+     */
+    public void removeMessageListener(MessageListener listener) {
+        for(List<MessageListener> listeners : commandHandlers.values()) {
+            listeners.remove(listener);
+        }
+    }
+
     /**
      * Clear all current listeners
      */
     public void clearListeners() {
         this.handlers.clear();
+        this.commandHandlers.clear();
     }
 
     /** Receive a message from the server. Relay to any attached listeners
@@ -115,6 +247,21 @@ public class Communicator {
     private void receive(WebSocket websocket, String message) {
         logger.info("Received: " + message);
 
+        // only decode messages someone is listening for
+        List<MessageListener> listeners = commandHandlers.isEmpty() ? null : commandHandlers.get(Protocol.command(message));
+        if(listeners != null && !listeners.isEmpty()) {
+            Message decoded = null;
+            try {
+                decoded = Protocol.decode(message);
+            } catch (IllegalArgumentException e) {
+                logger.error("Unable to decode message: " + e.getMessage());
+            }
+            if(decoded != null) {
+                for(MessageListener handler : listeners) {
+                    handler.receiveMessage(decoded);
+                }
+            }
+        }
         for(CommunicationsListener handler : handlers) {
             handler.receiveCommunication(message);
         }
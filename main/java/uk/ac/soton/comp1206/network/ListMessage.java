@@ -0,0 +1,41 @@
+package uk.ac.soton.comp1206.network;
+
+import java.util.List;
+
+/**
+ * A message listing one item per line: CHANNELS and USERS
+ */
+public class ListMessage extends Message {
+
+    /**
+     * The items listed
+     */
+    private final List<String> items;
+
+    /**
+     * Create a new list message
+     * @param command the command
+     * @param items the items listed
+     */
+    public ListMessage(String command, List<String> items) {
+        super(command);
+        this.items = List.copyOf(items);
+    }
+
+    /**
+     * Get the items listed
+     * @return items, which can not be modified
+     */
+    public List<String> getItems() {
+        return items;
+    }
+
+    /**
+     * Return the command and items
+     * @return message
+     */
+    @Override
+    public String toString() {
+        return getCommand() + " " + items;
+    }
+}
@@ -0,0 +1,38 @@
+package uk.ac.soton.comp1206.network;
+
+/**
+ * A message received from the TetrECS server, decoded by the Protocol. Messages with nothing after the command, such as
+ * HOST and START, are plain Messages. The others are decoded into one of the subclasses.
+ */
+public class Message {
+
+    /**
+     * The command the message starts with, such as BOARD
+     */
+    private final String command;
+
+    /**
+     * Create a new message
+     * @param command the command
+     */
+    public Message(String command) {
+        this.command = command;
+    }
+
+    /**
+     * Get the command the message starts with
+     * @return command
+     */
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * Return the command
+     * @return command
+     */
+    @Override
+    public String toString() {
+        return command;
+    }
+}
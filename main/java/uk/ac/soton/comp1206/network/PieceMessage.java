@@ -0,0 +1,38 @@
+package uk.ac.soton.comp1206.network;
+
+/**
+ * The next piece to play in a multiplayer game: PIECE n
+ */
+public class PieceMessage extends Message {
+
+    /**
+     * The number of the piece
+     */
+    private final int piece;
+
+    /**
+     * Create a new piece message
+     * @param piece the number of the piece
+     */
+    public PieceMessage(int piece) {
+        super(Protocol.PIECE);
+        this.piece = piece;
+    }
+
+    /**
+     * Get the number of the piece
+     * @return piece
+     */
+    public int getPiece() {
+        return piece;
+    }
+
+    /**
+     * Return the message as it was sent
+     * @return message
+     */
+    @Override
+    public String toString() {
+        return getCommand() + " " + piece;
+    }
+}
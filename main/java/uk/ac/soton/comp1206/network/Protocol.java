@@ -0,0 +1,391 @@
+package uk.ac.soton.comp1206.network;
+
+import javafx.util.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The Protocol decodes messages from the TetrECS server into typed Messages, so every message is parsed once when it
+ * arrives instead of by every listener.
+ *
+ * The text is scanned in place. Numbers are read straight from the characters, and the only strings created are the
+ * names and text the message carries. Known commands are matched against constants, so they are not copied either.
+ *
+ * Boards are sent in two forms. A full board lists the value of every block row by row: BOARD v v v ... A delta starts
+ * with D and lists only the blocks which changed since the last board, as pairs of block index and value:
+ * BOARD D i v i v ...
+ */
+public final class Protocol {
+
+    /**
+     * Command for the list of channels
+     */
+    public static final String CHANNELS = "CHANNELS";
+
+    /**
+     * Command for joining a channel
+     */
+    public static final String JOIN = "JOIN";
+
+    /**
+     * Command for a chat message
+     */
+    public static final String MSG = "MSG";
+
+    /**
+     * Command for becoming the host of a channel
+     */
+    public static final String HOST = "HOST";
+
+    /**
+     * Command for the list of users in a channel
+     */
+    public static final String USERS = "USERS";
+
+    /**
+     * Command for the game starting
+     */
+    public static final String START = "START";
+
+    /**
+     * Command for a nickname change
+     */
+    public static final String NICK = "NICK";
+
+    /**
+     * Command for the next piece
+     */
+    public static final String PIECE = "PIECE";
+
+    /**
+     * Command for another player's board
+     */
+    public static final String BOARD = "BOARD";
+
+    /**
+     * Command for the scores of the players in a game
+     */
+    public static final String SCORES = "SCORES";
+
+    /**
+     * Command for a player leaving the game
+     */
+    public static final String DIE = "DIE";
+
+    /**
+     * Command for the online high scores
+     */
+    public static final String HISCORES = "HISCORES";
+
+    /**
+     * Command for a high score being accepted
+     */
+    public static final String NEWSCORE = "NEWSCORE";
+
+    /**
+     * Command for an error
+     */
+    public static final String ERROR = "ERROR";
+
+    /**
+     * Marks a board which only lists the blocks which changed
+     */
+    public static final char DELTA = 'D';
+
+    /**
+     * Every known command, so a decoded command can be one of the constants rather than a copy
+     */
+    private static final String[] COMMANDS = {
+            CHANNELS, HISCORES, NEWSCORE, SCORES, ERROR, USERS, START, PIECE, BOARD, JOIN, HOST, NICK, MSG, DIE
+    };
+
+    private Protocol() {
+    }
+
+    /**
+     * Read only the command of a message from the server, so it can be skipped without decoding the rest
+     * @param frame the message as received
+     * @return the command
+     */
+    public static String command(String frame) {
+        return new Cursor(frame).readCommand();
+    }
+
+    /**
+     * Decode a message from the server
+     * @param frame the message as received
+     * @return the decoded message
+     * @throws IllegalArgumentException if the message is not in the form its command needs
+     */
+    public static Message decode(String frame) {
+        Cursor cursor = new Cursor(frame);
+        String command = cursor.readCommand();
+        cursor.skipWhitespace();
+
+        switch (command) {
+            case PIECE:
+                return new PieceMessage(cursor.readInt());
+            case BOARD:
+                String player = cursor.readUntil(':');
+                boolean delta = cursor.skip(DELTA);
+                return new BoardMessage(player, cursor.readInts(), delta);
+            case MSG:
+                return new ChatMessage(cursor.readUntil(':'), cursor.readRest());
+            case SCORES:
+            case HISCORES:
+            case NEWSCORE:
+                return new ScoresMessage(command, cursor.readScores());
+            case CHANNELS:
+            case USERS:
+                return new ListMessage(command, cursor.readLines());
+            case JOIN:
+            case NICK:
+            case DIE:
+            case ERROR:
+                return new TextMessage(command, cursor.readRest());
+            default:
+                if (cursor.atEnd()) {
+                    return new Message(command);
+                }
+                return new TextMessage(command, cursor.readRest());
+        }
+    }
+
+    /**
+     * Encode a full board
+     * @param values value of every block, row by row
+     * @return the BOARD message
+     */
+    public static String encodeBoard(byte[] values) {
+        StringBuilder message = new StringBuilder(BOARD.length() + values.length * 3);
+        message.append(BOARD);
+        for (byte value : values) {
+            message.append(' ').append(value);
+        }
+        return message.toString();
+    }
+
+    /**
+     * Encode the blocks of a board which changed
+     * @param previous value of every block when the board was last sent, row by row
+     * @param values value of every block now, row by row
+     * @return the BOARD message
+     */
+    public static String encodeBoardDelta(byte[] previous, byte[] values) {
+        StringBuilder message = new StringBuilder();
+        message.append(BOARD).append(' ').append(DELTA);
+        for (int i = 0; i < values.length; i++) {
+            if (previous[i] != values[i]) {
+                message.append(' ').append(i).append(' ').append(values[i]);
+            }
+        }
+        return message.toString();
+    }
+
+    /**
+     * A position in a message being decoded
+     */
+    private static class Cursor {
+
+        /**
+         * The message
+         */
+        private final String text;
+
+        /**
+         * End of the message, not counting trailing whitespace
+         */
+        private final int end;
+
+        /**
+         * Position of the next character to read
+         */
+        private int position;
+
+        /**
+         * Create a cursor at the start of a message, skipping leading and trailing whitespace
+         * @param text the message
+         */
+        private Cursor(String text) {
+            this.text = text;
+            int end = text.length();
+            while (end > 0 && Character.isWhitespace(text.charAt(end - 1))) {
+                end--;
+            }
+            this.end = end;
+            skipWhitespace();
+        }
+
+        /**
+         * Whether the whole message has been read
+         * @return true at the end
+         */
+        private boolean atEnd() {
+            return position >= end;
+        }
+
+        /**
+         * Skip any whitespace
+         */
+        private void skipWhitespace() {
+            while (position < end && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        /**
+         * Skip a character, and any whitespace after it, if it is next
+         * @param character the character
+         * @return whether it was skipped
+         */
+        private boolean skip(char character) {
+            if (position < end && text.charAt(position) == character) {
+                position++;
+                skipWhitespace();
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Read the command, which runs up to the first whitespace
+         * @return the command, one of the constants if it is known
+         */
+        private String readCommand() {
+            int start = position;
+            while (position < end && !Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+            int length = position - start;
+            for (String command : COMMANDS) {
+                if (command.length() == length && text.regionMatches(start, command, 0, length)) {
+                    return command;
+                }
+            }
+            return text.substring(start, position);
+        }
+
+        /**
+         * Read up to a separator, and skip the separator
+         * @param separator the separator
+         * @return the text before the separator
+         */
+        private String readUntil(char separator) {
+            int index = text.indexOf(separator, position);
+            if (index < 0 || index >= end) {
+                throw malformed();
+            }
+            String value = text.substring(position, index);
+            position = index + 1;
+            return value;
+        }
+
+        /**
+         * Read the rest of the current line, and skip the new line
+         * @return the line
+         */
+        private String readLine() {
+            int index = text.indexOf('\n', position);
+            int lineEnd = index < 0 || index > end ? end : index;
+            String line = text.substring(position, lineEnd > position && text.charAt(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd);
+            position = lineEnd + 1;
+            return line;
+        }
+
+        /**
+         * Read the rest of the message
+         * @return the rest of the message
+         */
+        private String readRest() {
+            String rest = text.substring(position, end);
+            position = end;
+            return rest;
+        }
+
+        /**
+         * Read a whole number, which may be negative
+         * @return the number
+         */
+        private int readInt() {
+            boolean negative = position < end && text.charAt(position) == '-';
+            if (negative) {
+                position++;
+            }
+            int start = position;
+            int value = 0;
+            while (position < end) {
+                int digit = text.charAt(position) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                value = value * 10 + digit;
+                position++;
+            }
+            if (position == start) {
+                throw malformed();
+            }
+            return negative ? -value : value;
+        }
+
+        /**
+         * Read the numbers separated by whitespace up to the end of the message
+         * @return the numbers
+         */
+        private int[] readInts() {
+            // count the numbers first, so they can be read straight into an array of the right size
+            int start = position;
+            int count = 0;
+            while (!atEnd()) {
+                readInt();
+                skipWhitespace();
+                count++;
+            }
+            position = start;
+            int[] values = new int[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = readInt();
+                skipWhitespace();
+            }
+            return values;
+        }
+
+        /**
+         * Read the non-empty lines up to the end of the message
+         * @return the lines
+         */
+        private List<String> readLines() {
+            List<String> lines = new ArrayList<>();
+            while (!atEnd()) {
+                String line = readLine();
+                if (!line.isEmpty()) {
+                    lines.add(line);
+                }
+            }
+            return lines;
+        }
+
+        /**
+         * Read lines of name:score up to the end of the message, skipping anything after the score on each line
+         * @return the names and scores
+         */
+        private List<Pair<String, Integer>> readScores() {
+            List<Pair<String, Integer>> scores = new ArrayList<>();
+            while (!atEnd()) {
+                String name = readUntil(':');
+                scores.add(new Pair<>(name, readInt()));
+                int index = text.indexOf('\n', position);
+                position = index < 0 ? end : index + 1;
+            }
+            return scores;
+        }
+
+        /**
+         * Create the exception thrown when the message is not in the expected form
+         * @return exception
+         */
+        private IllegalArgumentException malformed() {
+            return new IllegalArgumentException("Malformed message at " + position + ": " + text);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package uk.ac.soton.comp1206.network;
+
+import javafx.util.Pair;
+
+import java.util.List;
+
+/**
+ * A message listing names and scores, one per line: SCORES (the players in a game), HISCORES (the online high scores)
+ * and NEWSCORE (a score the server has accepted). Anything after the score on a line, such as the lives sent with
+ * SCORES, is skipped.
+ */
+public class ScoresMessage extends Message {
+
+    /**
+     * The names and scores, in the order they were sent
+     */
+    private final List<Pair<String, Integer>> scores;
+
+    /**
+     * Create a new scores message
+     * @param command the command
+     * @param scores the names and scores
+     */
+    public ScoresMessage(String command, List<Pair<String, Integer>> scores) {
+        super(command);
+        this.scores = List.copyOf(scores);
+    }
+
+    /**
+     * Get the names and scores
+     * @return scores, which can not be modified
+     */
+    public List<Pair<String, Integer>> getScores() {
+        return scores;
+    }
+
+    /**
+     * Return the command and scores
+     * @return message
+     */
+    @Override
+    public String toString() {
+        return getCommand() + " " + scores;
+    }
+}
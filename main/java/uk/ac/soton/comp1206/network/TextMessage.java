@@ -0,0 +1,40 @@
+package uk.ac.soton.comp1206.network;
+
+/**
+ * A message with a single piece of text after the command: JOIN, NICK, DIE, ERROR, and any command the Protocol does
+ * not know about.
+ */
+public class TextMessage extends Message {
+
+    /**
+     * The text after the command
+     */
+    private final String text;
+
+    /**
+     * Create a new text message
+     * @param command the command
+     * @param text the text after the command
+     */
+    public TextMessage(String command, String text) {
+        super(command);
+        this.text = text;
+    }
+
+    /**
+     * Get the text after the command
+     * @return text
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Return the message as it was sent
+     * @return message
+     */
+    @Override
+    public String toString() {
+        return getCommand() + " " + text;
+    }
+}
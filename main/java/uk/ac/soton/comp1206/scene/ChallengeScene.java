@@ -3,6 +3,7 @@ package uk.ac.soton.comp1206.scene;
 import javafx.animation.KeyFrame;
 import javafx.animation.KeyValue;
 import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.value.ObservableValue;
@@ -17,7 +18,6 @@ import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Text;
 import javafx.scene.text.TextAlignment;
 import javafx.util.Duration;
-import javafx.util.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.component.*;
@@ -25,12 +25,11 @@ import uk.ac.soton.comp1206.game.Game;
 import uk.ac.soton.comp1206.game.GamePiece;
 import uk.ac.soton.comp1206.game.Grid;
 import uk.ac.soton.comp1206.game.MultiplayerGame;
+import uk.ac.soton.comp1206.game.ScoreRepository;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 
-import java.io.*;
 import java.security.spec.RSAOtherPrimeInfo;
-import java.util.*;
 
 /**
  * The Single Player challenge scene. Holds the UI for the single player challenge mode in the game.
@@ -135,7 +134,7 @@ public class ChallengeScene extends BaseScene {
         challengePane.getChildren().add(mainPane);
 
         // add board to the central position of the page
-        board = new GameBoard(game.getGrid(),gameWindow.getWidth()/2,gameWindow.getWidth()/2);
+        board = new GameBoard(game.getDisplayGrid(),gameWindow.getWidth()/2,gameWindow.getWidth()/2);
         mainPane.setCenter(board);
         // current piece board
         this.pieceBoard1 = new PieceBoard(3,3,150,150);
@@ -247,7 +246,7 @@ public class ChallengeScene extends BaseScene {
         StackPane.setAlignment(gridPane, Pos.CENTER_LEFT);
         BorderPane.setMargin(this.timerBox, new Insets(10, 10, 10, 10));
 
-        game.setNextPieceListener((gamePiece1, followingPiece) -> nextPiece(gamePiece1));
+        game.setNextPieceListener(this::nextPiece);
     }
 
     /**
@@ -330,8 +329,8 @@ public class ChallengeScene extends BaseScene {
      */
     protected void rotate(int rotations) {
         Multimedia.playDocumentMusic("rotate.wav");
+        // the piece boards are updated by the next piece listener once the game has rotated the piece
         game.rotateCurrentPiece(rotations);
-        pieceBoard1.displayPiece(game.getCurrentPiece());
     }
 
     /**
@@ -348,8 +347,6 @@ public class ChallengeScene extends BaseScene {
     protected void swapCurrentPiece() {
         Multimedia.playDocumentMusic("rotate.wav");
         game.swapCurrentPiece();
-        pieceBoard1.displayPiece(game.getCurrentPiece());
-        pieceBoard2.displayPiece(game.getNewPiece());
     }
 
     /**
@@ -362,11 +359,12 @@ public class ChallengeScene extends BaseScene {
 
     /**
      * clear lines
-     * @param gameBlockCoordinates coordinates of game blocks
+     * @param rows the rows which were cleared
+     * @param cols the columns which were cleared
      */
-    protected void lineCleared(Set<GameBlockCoordinate> gameBlockCoordinates) {
+    protected void lineCleared(long rows, long cols) {
         Multimedia.playDocumentMusic("clear.wav");
-        board.fadeOut(gameBlockCoordinates);
+        board.fadeOut(rows, cols);
     }
 
     /**
@@ -408,33 +406,38 @@ public class ChallengeScene extends BaseScene {
     @Override
     public void initialise() {
         logger.info("Initialising Challenge");
-        game.start();
-        this.multimedia.playBgmMusic("game.wav");
         X = 0;
         Y = 0;
         this.scene.setOnKeyPressed(this::keyboardSupport);
         this.game.setOnLineCleared(this::lineCleared);
         game.start();
+        this.multimedia.playBgmMusic("game.wav");
         setHighScores();
+        // the scores may still be loading, so show the high score again once they are in
+        ScoreRepository.getInstance().load().thenRunAsync(this::setHighScores, Platform::runLater);
     }
 
     /**
      * next piece
      * @param gamePiece1 current piece
+     * @param followingPiece following piece
      */
-    public void nextPiece(GamePiece gamePiece1) {
+    public void nextPiece(GamePiece gamePiece1, GamePiece followingPiece) {
         pieceBoard1.displayPiece(gamePiece1);
-        pieceBoard2.displayPiece(game.getNewPiece());
+        pieceBoard2.displayPiece(followingPiece);
     }
 
     /**
-     *end game
+     *end game, stopping the game thread however the game was left
      */
     public void endGame(){
         if(!(game instanceof MultiplayerGame)) {
             logger.info("Game Over");
+            // stop the timer, and drop the game over listener in case a last update is still waiting to be shown,
+            // so the game can not end and show the scores after the scene has been left
+            game.setOnGameOver(null);
+            game.stop();
             gameTimer.setVisible(false);
-//        game.gameOver();
             Multimedia.stopBgmMusic();
             Multimedia.playDocumentMusic("transition.wav");
             gameWindow.startMenu();
@@ -452,33 +455,11 @@ public class ChallengeScene extends BaseScene {
     }
 
     /**
-     * set high scores
+     * set high scores, from the scores held in memory by the score repository
      */
     protected void setHighScores() {
-        File file = new File("scores.txt");
-        int highScore = 0;
-        try (Scanner scanner = new Scanner(file)) {
-            if (file.exists()){
-            List<Pair<String, Integer>> scores = new ArrayList<>();
-            while (scanner.hasNextLine()) {
-                String[] nameScore = scanner.nextLine().split(":");
-                Pair<String, Integer> pair = new Pair<>(nameScore[0], Integer.parseInt(nameScore[1]));
-                scores.add(pair);
-            }
-            scores.sort((a, b) -> b.getValue() - a.getValue());
-            highScore = scores.get(0).getValue();
-        } else {
-                highScore = game.scoreProperty().get();
-            }
-        }
-        catch (IOException e) {
-            logger.error("Unable to find high scores", e);
-        }
-        if (game.scoreProperty().get() > highScore) {
-            highScores.set(game.scoreProperty().get());
-        } else {
-            highScores.set(highScore);
-        }
+        int highScore = ScoreRepository.getInstance().getHighScore();
+        highScores.set(Math.max(highScore, game.scoreProperty().get()));
     }
 
 
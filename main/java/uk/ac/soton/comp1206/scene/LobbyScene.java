@@ -6,7 +6,6 @@ import javafx.event.EventHandler;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Button;
-import javafx.scene.control.ScrollPane;
 import javafx.scene.control.TextField;
 import javafx.scene.control.TextInputDialog;
 import javafx.scene.input.KeyCode;
@@ -15,8 +14,15 @@ import javafx.scene.layout.*;
 import javafx.scene.text.Text;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.component.ChatLog;
 import uk.ac.soton.comp1206.component.Multimedia;
+import uk.ac.soton.comp1206.network.ChannelService;
+import uk.ac.soton.comp1206.network.ChatMessage;
 import uk.ac.soton.comp1206.network.Communicator;
+import uk.ac.soton.comp1206.network.ListMessage;
+import uk.ac.soton.comp1206.network.Message;
+import uk.ac.soton.comp1206.network.Protocol;
+import uk.ac.soton.comp1206.network.TextMessage;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 
@@ -30,18 +36,22 @@ public class LobbyScene extends BaseScene{
      * logger
      */
     private static final Logger logger = LogManager.getLogger(MenuScene.class);
-    /**
-     * timer
-     */
-    protected Timer timer;
     /**
      * communicator
      */
     protected Communicator communicator;
+    /**
+     * keeps the channel list up to date
+     */
+    protected ChannelService channelService;
     /**
      * vbox of channel
      */
     protected VBox channelNames = new VBox();
+    /**
+     * the text shown for each channel
+     */
+    protected Map<String, Text> channelItems = new HashMap<>();
     /**
      * nick name button
      */
@@ -66,10 +76,14 @@ public class LobbyScene extends BaseScene{
      * channel text vbox
      */
     protected Text channelText = new Text();
+    /**
+     * most chat lines kept
+     */
+    private static final int CHAT_HISTORY = 200;
     /**
      * message box
      */
-    protected VBox messageBox = new VBox();
+    protected ChatLog messageBox;
     /**
      * gridpane of players
      */
@@ -98,15 +112,16 @@ public class LobbyScene extends BaseScene{
 
     @Override
     public void initialise() {
-        this.timer = new Timer();
         this.scene.setOnKeyPressed(keyEvent -> {
             // Leave the game and channel when escape is pressed
             if(keyEvent.getCode() == KeyCode.ESCAPE) {
                 handleEscapeKeyPressed();
             }
         });
-        scheduleChannelListRefresh();
         setCommunicator();
+        // the service is stopped when the scene changes, so the lobby never leaves a refresh running
+        channelService = gameWindow.getChannelService();
+        channelService.start((added, removed) -> Platform.runLater(() -> updateChannels(added, removed)));
         Multimedia.playBgmMusic("end.wav");
     }
 
@@ -118,27 +133,14 @@ public class LobbyScene extends BaseScene{
         communicator.send("PART");
     }
 
-    private void scheduleChannelListRefresh() {
-        timer.scheduleAtFixedRate(new TimerTask() {
-            // search the channel for new messages every 3 seconds
-            @Override
-            public void run() {
-                searchForNewMessages();
-            }
-        }, 1000, 5000);
-    }
-
-    private void searchForNewMessages() {
-        communicator.send("LIST");
-    }
-
     private void setCommunicator() {
         communicator = gameWindow.getCommunicator();
-        communicator.addListener(this::handleIncomingMessage);
+        communicator.addListener(this::handleIncomingMessage, Protocol.JOIN, Protocol.MSG,
+                Protocol.HOST, Protocol.USERS, Protocol.START, Protocol.NICK);
     }
 
-    private void handleIncomingMessage(String message) {
-        Platform.runLater(() -> listen(message.trim()));
+    private void handleIncomingMessage(Message message) {
+        Platform.runLater(() -> listen(message));
     }
 
 
@@ -176,6 +178,7 @@ public class LobbyScene extends BaseScene{
                 } else {
                     communicator.send("CREATE channel");
                 }
+                channelService.refresh();
             }
         });
 
@@ -203,8 +206,9 @@ public class LobbyScene extends BaseScene{
                 nickName.setVisible(false);
                 channelBox.setVisible(false);
                 channelText.setText(" ");
-                messageBox.getChildren().clear();
+                messageBox.clearMessages();
                 communicator.send("PART");
+                channelService.refresh();
             }
         });
 
@@ -220,20 +224,10 @@ public class LobbyScene extends BaseScene{
         var messagePane = new BorderPane();
         messagePane.setPrefSize(gameWindow.getWidth()/2, gameWindow.getHeight()/2);
 
-        // make the chat window can scroll down
-        var messageSPane = new ScrollPane();
-        messageSPane.getStyleClass().add("scroller");
-        messageSPane.setPrefSize(messagePane.getWidth(), messagePane.getHeight() - 100);
-        messageSPane.needsLayoutProperty().addListener((observable, oldValue, newValue) -> updateVvalue(newValue, messageSPane));
-
-        messageBox = new VBox();
+        // the chat window scrolls down to each new message by itself
+        messageBox = new ChatLog(CHAT_HISTORY);
         messageBox.getStyleClass().add("messages");
-        messageBox.setPrefSize(messageSPane.getPrefWidth(), messageSPane.getPrefHeight());
-        // make message box take up the window as much as possible
-        VBox.setVgrow(messageSPane, Priority.ALWAYS);
-
-        messageSPane.setContent(messageBox);
-        messagePane.setCenter(messageSPane);
+        messagePane.setCenter(messageBox);
 
         // field for users to edit message
         var textField = new TextField();
@@ -273,7 +267,7 @@ public class LobbyScene extends BaseScene{
         });
 
         playersPane = new GridPane();
-        playersPane.setPrefWidth(messageSPane.getPrefWidth());
+        playersPane.setPrefWidth(messagePane.getPrefWidth());
 
         var chatBox = new HBox(textField, sendMessage);
         var buttonBox = new HBox(nickName, leave);
@@ -315,12 +309,11 @@ public class LobbyScene extends BaseScene{
      * add players
      * @param players players
      */
-    protected void addPlayers(String players){
+    protected void addPlayers(List<String> players){
         playersPane.getChildren().clear();
         playerSet.clear();
-        String[] playersArr = players.split("\n");
         int row = 0, col = 0;
-        for (String player : playersArr) {
+        for (String player : players) {
             playerSet.add(player);
             Text text = new Text(player);
             text.getStyleClass().add("heading");
@@ -341,83 +334,76 @@ public class LobbyScene extends BaseScene{
         playersPane.setHgap(10);
     }
 
+    /**
+     * show channels which have been opened, and stop showing those which have closed
+     * @param added channels opened
+     * @param removed channels closed
+     */
+    protected void updateChannels(List<String> added, List<String> removed) {
+        for (String channel : removed) {
+            Text text = channelItems.remove(channel);
+            if (text != null) {
+                channelNames.getChildren().remove(text);
+            }
+        }
+        for (String channel : added) {
+            Text text = new Text(channel);
+            text.setOnMouseClicked(event -> communicator.send("JOIN " + channel));
+            text.hoverProperty().addListener((ov, oldValue, newValue) -> {
+                if (newValue) {
+                    text.setStyle("-fx-text-fill: yellow");
+                } else {
+                    text.setStyle("-fx-text-fill: white");
+                }
+            });
+            text.getStyleClass().add("channelItem");
+            channelItems.put(channel, text);
+            channelNames.getChildren().add(text);
+        }
+    }
+
     /**
      * commands
      * @param s string
      */
-    protected void listen(String s) {
-        String[] commands= s.split("\\s+", 2); // 将字符串按第一个空格分割成两个元素的数组
-        String command = commands[0]; // 获取命令字符串
+    protected void listen(Message s) {
+        String command = s.getCommand(); // 获取命令字符串
 
         switch (command) {
-            case "CHANNELS":
-                // show all available channels
-                channelNames.getChildren().clear();
-                String[] channelArray = commands[1].split("\n");
-                for (String channel : channelArray) {
-                    Text text = new Text(channel);
-                    text.setOnMouseClicked(event -> communicator.send("JOIN " + channel));
-                    text.hoverProperty().addListener((ov, oldValue, newValue) -> {
-                        if (newValue) {
-                            text.setStyle("-fx-text-fill: yellow");
-                        } else {
-                            text.setStyle("-fx-text-fill: white");
-                        }
-                    });
-                    text.getStyleClass().add("channelItem");
-                    channelNames.getChildren().add(text);
-                }
-                break;
-
-            case "JOIN":
+            case Protocol.JOIN:
                 // join the channel
-                String channelName = commands[1];
+                String channelName = ((TextMessage) s).getText();
                 joinChannel(channelName);
                 break;
 
-            case "MSG":
+            case Protocol.MSG:
                 // show new messages
-                String[] messageArr = commands[1].split(":");
-                if (messageArr.length > 1) {
-                    Text message = new Text(messageArr[0] + " : " + messageArr[1]);
-                    message.getStyleClass().add("messages Text");
-                    messageBox.getChildren().add(message);
-                }
+                ChatMessage chat = (ChatMessage) s;
+                messageBox.addMessage(chat.getSender() + " : " + chat.getText());
                 break;
 
-            case "HOST":
+            case Protocol.HOST:
                 // when the player is the host
                 startGame.setVisible(true);
                 break;
 
-            case "USERS":
+            case Protocol.USERS:
                 // show the list of current users
-                addPlayers(commands[1]);
+                addPlayers(((ListMessage) s).getItems());
                 break;
 
-            case "START":
+            case Protocol.START:
                 // start the game
                 startMultiplayer();
                 break;
 
-            case "NICK":
+            case Protocol.NICK:
                 // check the changes of users' nicknames
-                username = commands[1];
+                username = ((TextMessage) s).getText();
                 break;
         }
     }
 
-    /**
-     *
-     * @param needsLayout judge whether need to layout
-     * @param scrollPane scroll pane
-     */
-    private void updateVvalue(boolean needsLayout, ScrollPane scrollPane) {
-        if (!needsLayout) {
-            scrollPane.setVvalue(1.0);
-        }
-    }
-
     /**
      * update buttons styles
      * @param button button
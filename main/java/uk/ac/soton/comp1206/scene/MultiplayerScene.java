@@ -5,7 +5,6 @@ import javafx.beans.property.SimpleListProperty;
 import javafx.collections.FXCollections;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
-import javafx.scene.control.ScrollPane;
 import javafx.scene.control.TextField;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
@@ -15,20 +14,36 @@ import javafx.scene.text.TextAlignment;
 import javafx.util.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import uk.ac.soton.comp1206.component.GameBoard;
+import uk.ac.soton.comp1206.component.CanvasGameBoard;
+import uk.ac.soton.comp1206.component.ChatLog;
 import uk.ac.soton.comp1206.component.Multimedia;
 import uk.ac.soton.comp1206.component.ScoresList;
 import uk.ac.soton.comp1206.game.MultiplayerGame;
+import uk.ac.soton.comp1206.network.BoardMessage;
+import uk.ac.soton.comp1206.network.ChatMessage;
 import uk.ac.soton.comp1206.network.Communicator;
+import uk.ac.soton.comp1206.network.Message;
+import uk.ac.soton.comp1206.network.Protocol;
+import uk.ac.soton.comp1206.network.ScoresMessage;
+import uk.ac.soton.comp1206.network.TextMessage;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * multiplayer scene
+ *
+ * Messages are decoded on the network thread. Boards and scores from other players are applied there too, to the
+ * latest copy of each board, and the JavaFX thread is only asked to show what changed once per pulse. However many
+ * boards arrive in between, each opponent's board is redrawn at most once.
  */
 
 public class MultiplayerScene extends ChallengeScene{
@@ -38,9 +53,14 @@ public class MultiplayerScene extends ChallengeScene{
     private static final Logger logger = LogManager.getLogger(MultiplayerScene.class);
 
     /**
-     * message vbox
+     * most chat lines kept
      */
-    protected VBox messagesBox;
+    private static final int CHAT_HISTORY = 200;
+
+    /**
+     * chat messages
+     */
+    protected ChatLog messagesBox;
 
     /**
      * Communicator
@@ -74,9 +94,29 @@ public class MultiplayerScene extends ChallengeScene{
     protected Set<String> players;
 
     /**
-     * Players' own game boards
+     * Players' own game boards, each drawn on a single canvas
+     */
+    protected HashMap<String, CanvasGameBoard> playersGameboard;
+
+    /**
+     * The latest board of each other player, row by row, written on the network thread
+     */
+    private final Map<String, byte[]> latestBoards = new ConcurrentHashMap<>();
+
+    /**
+     * Players whose board has changed since it was last shown
+     */
+    private final Set<String> changedBoards = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The latest scores, if they have not been shown yet
+     */
+    private final AtomicReference<ScoresMessage> latestScores = new AtomicReference<>();
+
+    /**
+     * Whether the JavaFX thread has been asked to show the latest boards and scores
      */
-    protected HashMap<String, GameBoard> playersGameboard;
+    private final AtomicBoolean showScheduled = new AtomicBoolean(false);
     /**
      * Create a new challenge scene
      *
@@ -97,7 +137,7 @@ public class MultiplayerScene extends ChallengeScene{
         communicator = gameWindow.getCommunicator();
         this.game.setOnGameLoop(this::gameLoop);
         //Listens for messages from communicator and handles the command
-        communicator.addListener(message -> Platform.runLater(() -> listen(message.trim())));
+        communicator.addListener(this::receive, Protocol.MSG, Protocol.SCORES, Protocol.DIE, Protocol.BOARD);
         communicator.send("SCORES");
         initialisePlayerBoards();
     }
@@ -165,17 +205,9 @@ public class MultiplayerScene extends ChallengeScene{
         logger.info("Building " + this.getClass().getName());
 
         // Chat Window
-        messagesBox = new VBox();
+        messagesBox = new ChatLog(CHAT_HISTORY);
         messagesBox.getStyleClass().add("messages");
-
-        ScrollPane messagesScrollPane = new ScrollPane(messagesBox);
-        messagesScrollPane.setBackground(null);
-        messagesScrollPane.setPrefSize(gameWindow.getWidth() / 8, gameWindow.getHeight() / 8);
-        messagesScrollPane.needsLayoutProperty().addListener((observable, oldValue, newValue) -> {
-            if (!newValue) {
-                messagesScrollPane.setVvalue(1.0);
-            }
-        });
+        messagesBox.setPrefSize(gameWindow.getWidth() / 8, gameWindow.getHeight() / 8);
 
         // Scores
         leaderboard = new ScoresList();
@@ -189,7 +221,7 @@ public class MultiplayerScene extends ChallengeScene{
         boardsBox.setAlignment(Pos.CENTER_RIGHT);
         boardsBox.setSpacing(10);
 
-        VBox mainBox = new VBox(messagesScrollPane, leaderboard, boardsBox);
+        VBox mainBox = new VBox(messagesBox, leaderboard, boardsBox);
         mainBox.setAlignment(Pos.CENTER_RIGHT);
         mainBox.setSpacing(20);
         mainBox.setPadding(new Insets(20));
@@ -214,36 +246,67 @@ public class MultiplayerScene extends ChallengeScene{
     }
 
     /**
-     * Handles messages from communicator
+     * Handles messages from communicator on the network thread. Boards and scores are kept until the next pulse, and
+     * anything else is passed to the JavaFX thread.
      * @param message message received from communicator
      */
-    protected void listen(String message) {
-        if (message.startsWith("MSG ")) {
-            String[] parts = message.substring(4).split(":");
-            if (parts.length > 1) {
-                String sender = parts[0];
-                String text = parts[1];
-                Text messageText = new Text(sender + " : " + text);
-                messageText.getStyleClass().add("messages Text");
-                messagesBox.getChildren().add(messageText);
+    protected void receive(Message message) {
+        if (message instanceof BoardMessage) {
+            if (updatePlayerBoard((BoardMessage) message)) {
+                scheduleShow();
             }
-        } else if (message.startsWith("SCORES ")) {
-            String[] scores = message.substring(7).split("\n");
-            multiplayerScores.clear();
-            for (String score : scores) {
-                String[] parts = score.split(":");
-                if (parts.length > 1) {
-                    String name = parts[0];
-                    int value = Integer.parseInt(parts[1]);
-                    multiplayerScores.add(new Pair<>(name, value));
+        } else if (message instanceof ScoresMessage) {
+            latestScores.set((ScoresMessage) message);
+            scheduleShow();
+        } else {
+            Platform.runLater(() -> listen(message));
+        }
+    }
+
+    /**
+     * Handles chat and players leaving on the JavaFX thread
+     * @param message message received from communicator
+     */
+    protected void listen(Message message) {
+        if (message instanceof ChatMessage) {
+            ChatMessage chat = (ChatMessage) message;
+            messagesBox.addMessage(chat.getSender() + " : " + chat.getText());
+        } else if (message instanceof TextMessage && message.getCommand().equals(Protocol.DIE)) {
+            removeUser(((TextMessage) message).getText());
+        }
+    }
+
+    /**
+     * Ask the JavaFX thread to show the latest boards and scores, unless it has been asked already
+     */
+    private void scheduleShow() {
+        if (showScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::showLatest);
+        }
+    }
+
+    /**
+     * Show the boards which have changed and the latest scores, on the JavaFX thread
+     */
+    private void showLatest() {
+        showScheduled.set(false);
+        ScoresMessage scores = latestScores.getAndSet(null);
+        if (scores != null) {
+            multiplayerScores.setAll(scores.getScores());
+        }
+        if (playersGameboard == null) {
+            return;
+        }
+        for (Iterator<String> iterator = changedBoards.iterator(); iterator.hasNext(); ) {
+            String player = iterator.next();
+            iterator.remove();
+            CanvasGameBoard playerBoard = playersGameboard.get(player);
+            byte[] values = latestBoards.get(player);
+            if (playerBoard != null && values != null) {
+                synchronized (values) {
+                    playerBoard.getGrid().setValues(values);
                 }
             }
-        } else if (message.startsWith("DIE ")) {
-            String name = message.substring(4);
-            removeUser(name);
-        } else if (message.startsWith("BOARD ")) {
-            String boardStr = message.substring(6);
-            updatePlayerBoard(boardStr);
         }
     }
 
@@ -254,7 +317,7 @@ public class MultiplayerScene extends ChallengeScene{
     public void initialisePlayerBoards() {
         playersGameboard = new HashMap<>();
         for (String player: players) {
-            GameBoard gameBoard = new GameBoard(5,5, 75,75);
+            CanvasGameBoard gameBoard = new CanvasGameBoard(game.getCols(), game.getRows(), 75, 75);
             Text name = new Text(player);
             name.getStyleClass().add("heading");
             name.setTextAlignment(TextAlignment.CENTER);
@@ -271,26 +334,36 @@ public class MultiplayerScene extends ChallengeScene{
 
 
     /**
-     * Updates GameBoards when a message is received
+     * Updates the latest copy of a player's board when a message is received, on the network thread, either setting
+     * every block or only the blocks which changed. The board is redrawn on the next pulse.
      * @param board game board
+     * @return whether the board belongs to a player in the game
      */
-    public void updatePlayerBoard(String board) {
-        String[] boardParts = board.split(":");
-        String playerName = boardParts[0];
-        String[] boardValues = boardParts[1].split(" ");
-
-        if (players.contains(playerName)) {
-            GameBoard playerBoard = playersGameboard.get(playerName);
-
-            int boardIndex = 0;
-            for (int row = 0; row < game.getRows(); row++) {
-                for (int col = 0; col < game.getCols(); col++) {
-                    int cellValue = Integer.parseInt(boardValues[boardIndex]);
-                    playerBoard.getGrid().set(col, row, cellValue);
-                    boardIndex++;
+    public boolean updatePlayerBoard(BoardMessage board) {
+        String playerName = board.getPlayer();
+        int[] boardValues = board.getValues();
+
+        if (!players.contains(playerName)) {
+            return false;
+        }
+        int blocks = game.getCols() * game.getRows();
+        byte[] values = latestBoards.computeIfAbsent(playerName, player -> new byte[blocks]);
+        synchronized (values) {
+            if (board.isDelta()) {
+                for (int i = 0; i + 1 < boardValues.length; i += 2) {
+                    int boardIndex = boardValues[i];
+                    if (boardIndex >= 0 && boardIndex < blocks) {
+                        values[boardIndex] = (byte) boardValues[i + 1];
+                    }
+                }
+            } else {
+                for (int boardIndex = 0; boardIndex < blocks && boardIndex < boardValues.length; boardIndex++) {
+                    values[boardIndex] = (byte) boardValues[boardIndex];
                 }
             }
         }
+        changedBoards.add(playerName);
+        return true;
     }
 
 }
@@ -19,14 +19,17 @@ import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.component.Multimedia;
 import uk.ac.soton.comp1206.component.ScoresList;
 import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.Leaderboard;
+import uk.ac.soton.comp1206.game.ScoreRepository;
 import uk.ac.soton.comp1206.network.Communicator;
+import uk.ac.soton.comp1206.network.Message;
+import uk.ac.soton.comp1206.network.Protocol;
+import uk.ac.soton.comp1206.network.ScoresMessage;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 
-import java.io.*;
 import java.util.ArrayList;
 import java.util.Optional;
-import java.util.Scanner;
 
 /**
  * scores scene
@@ -125,7 +128,6 @@ public class ScoresScene extends BaseScene{
             addNamesAndScores(this.userName,this.score);
         } else {
             this.localScoresList.addAll(multiplayerScores);
-            this.localScoresList.sort((a, b) -> b.getValue() - a.getValue());
         }
 
         this.scene.setOnKeyPressed(keyEvent -> {
@@ -140,7 +142,8 @@ public class ScoresScene extends BaseScene{
         });
 
         loadOnlineScores();
-        this.communicator.addListener(message -> Platform.runLater(() -> this.getMessage(message.trim())));
+        this.communicator.addListener(message -> Platform.runLater(() -> this.getMessage(message)),
+                Protocol.HISCORES, Protocol.NEWSCORE);
     }
 
 
@@ -239,76 +242,26 @@ public class ScoresScene extends BaseScene{
     }
 
     /**
-     * load a set of high scores from a file and populate an ordered list
+     * load the high scores from the score repository into the ordered list, once they have been read
      */
     protected void loadScores() {
         logger.info("Loading scores");
-        File file = new File("scores.txt");
-        try {
-// Check if the file exists
-            if (file.exists()) {
-                BufferedReader bufferedReader = new BufferedReader(new FileReader(file));
-                String line;
-                while ((line = bufferedReader.readLine()) != null) {
-// Split the input to usernames and scores
-                    String[] usernamesAndScores = line.split(":");
-// Save usernames and scores into data
-                    var data = new Pair<String, Integer>(usernamesAndScores[0], Integer.parseInt(usernamesAndScores[1]));
-                    this.localScoresList.add(data);
-                }
-                bufferedReader.close();
-            } else {
-// If the file doesn't exist, create a new file and write default scores
-                file.createNewFile();
-                writeScores();
-            }
-        } catch (IOException e) {
-            logger.error("Unable to load scores");
-            e.printStackTrace();
-        }
-    }
-
-    private void writeScores() {
-        logger.info("Writing scores");
-        ArrayList<Pair<String, Integer>> scores = new ArrayList<>();
-        scores.add(new Pair<>("Jingyi", 10000));
-        scores.add(new Pair<>("Jingyi", 9000));
-        scores.add(new Pair<>("Jingyi", 8000));
-        scores.add(new Pair<>("Jingyi", 7000));
-        scores.add(new Pair<>("Jingyi", 6000));
-        scores.add(new Pair<>("Jingyi", 5000));
-        scores.add(new Pair<>("Jingyi", 4000));
-        scores.add(new Pair<>("Jingyi", 3000));
-        File file = new File("scores.txt");
-        try (FileWriter fileWriter = new FileWriter(file);
-             BufferedWriter bufferedWriter = new BufferedWriter(fileWriter)) {
-            for (Pair<String, Integer> pair : scores) {
-                String usernamesAndScores = pair.getKey() + ":" + pair.getValue();
-                localScoresList.add(pair);
-                bufferedWriter.write(usernamesAndScores);
-                bufferedWriter.newLine();
-            }
-        } catch (IOException e) {
-            logger.error("Unable to write scores", e);
-        }
+        ScoreRepository.getInstance().load()
+                .thenAcceptAsync(scores -> this.localScoresList.setAll(scores), Platform::runLater);
     }
 
     /**
-     * add usernames and scores to the file and add them to local score list
+     * add usernames and scores to the score repository and show every score in the local score list once it is saved
      * @param names usernames
      * @param scores scores
      */
     public void addNamesAndScores(String names, int scores) {
-        File file = new File("scores.txt");
-        try (FileWriter writer = new FileWriter(file, true);
-             BufferedWriter bufferedWriter = new BufferedWriter(writer)) {
-            bufferedWriter.write(names + ":" + scores);
-            bufferedWriter.newLine();
-            this.localScoresList.add(new Pair<>(this.userName, this.score));
-            this.localScoresList.sort((a, b) -> b.getValue() - a.getValue());
-        } catch (IOException e) {
-            logger.error("Unable to add score to text file", e);
-        }
+        ScoreRepository repository = ScoreRepository.getInstance();
+        // the list is replaced with scores which already hold the new one, so it is never shown twice
+        // the score is shown even if it could not be saved
+        repository.add(names, scores)
+                .handle((saved, error) -> repository.getScores())
+                .thenAcceptAsync(list -> this.localScoresList.setAll(list), Platform::runLater);
     }
 
     /**
@@ -342,27 +295,21 @@ public class ScoresScene extends BaseScene{
      * get message
      * @param message message
      */
-    protected void getMessage(String message) {
-        if (message.contains("NEWSCORE")) {
+    protected void getMessage(Message message) {
+        if (message.getCommand().equals(Protocol.NEWSCORE)) {
             logger.info("Server received highscore");
             return;
         }
 
-        if (!message.contains("HISCORES")) {
+        if (!(message instanceof ScoresMessage) || ((ScoresMessage) message).getScores().isEmpty()) {
             return;
         }
 
-        message = message.replace("HISCORES", "");
-        String[] scorePairs = message.split("\n");
-        remoteScoresList.clear(); // clear the remoteScoresList before adding new scores
-        for (String scorePair : scorePairs) {
-            String[] scoreAndName = scorePair.split(":");
-            remoteScoresList.add(new Pair<>(scoreAndName[0], Integer.parseInt(scoreAndName[1])));
-        }
-
-        remoteScoresList.sort((a, b) -> b.getValue() - a.getValue()); // sort the remoteScoresList in descending order of scores
+        // replace the remoteScoresList with the new scores, which the list ranks as they are shown
+        remoteScoresList.setAll(((ScoresMessage) message).getScores());
 
-        int lowestScoreOnList = remoteScoresList.get(Math.min(8, remoteScoresList.size() - 1)).getValue();
+        Leaderboard ranked = remoteList.getLeaderboard();
+        int lowestScoreOnList = ranked.get(Math.min(8, ranked.size() - 1)).getValue();
         if (score > lowestScoreOnList) {
             writeOnlineScore();
         }
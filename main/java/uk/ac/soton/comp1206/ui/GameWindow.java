@@ -10,6 +10,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.App;
 import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.network.ChannelService;
 import uk.ac.soton.comp1206.network.Communicator;
 import uk.ac.soton.comp1206.scene.*;
 
@@ -49,6 +50,10 @@ public class GameWindow {
      *
      */
     final Communicator communicator;
+    /**
+     * keeps the lobby's channel list up to date
+     */
+    final ChannelService channelService;
 
     /**
      * Create a new GameWindow attached to the given stage with the specified width and height
@@ -73,6 +78,7 @@ public class GameWindow {
 
         //Setup communicator
         communicator = new Communicator("ws://ofb-labs.soton.ac.uk:9700");
+        channelService = new ChannelService(communicator);
 
         //Go to menu
         startMenu();
@@ -165,6 +171,7 @@ public class GameWindow {
      */
     public void cleanup() {
         logger.info("Clearing up previous scene");
+        channelService.stop();
         communicator.clearListeners();
     }
 
@@ -199,4 +206,12 @@ public class GameWindow {
     public Communicator getCommunicator() {
         return communicator;
     }
+
+    /**
+     * Get the channel service
+     * @return channel service
+     */
+    public ChannelService getChannelService() {
+        return channelService;
+    }
 }